@@ -37,3 +37,16 @@ Selector labels
 app.kubernetes.io/name: {{ include "prepper-backend.name" . }}
 app.kubernetes.io/instance: {{ .Release.Name }}
 {{- end }}
+
+{{/*
+Container image; the native variant is published with a "-native" tag suffix
+*/}}
+{{- define "prepper-backend.image" -}}
+{{- $tag := .Values.image.tag | default .Chart.AppVersion }}
+{{- if eq .Values.image.variant "native" }}
+{{- $tag = printf "%s-native" $tag }}
+{{- else if ne .Values.image.variant "jvm" }}
+{{- fail "image.variant must be jvm or native" }}
+{{- end }}
+{{- printf "%s:%s" .Values.image.repository $tag }}
+{{- end }}
@@ -0,0 +1,37 @@
+-- Schema as previously created by hibernate-orm.database.generation=update. Databases that already
+-- have these tables are baselined at this version and skip this script.
+
+create sequence Product_SEQ start with 1 increment by 50;
+create sequence StockEntry_SEQ start with 1 increment by 50;
+create sequence users_SEQ start with 1 increment by 50;
+
+create table Product (
+    id bigint not null,
+    name varchar(255) not null,
+    category varchar(255) not null check (category in ('WATER','PRESERVED_FOOD','DRY_GOODS','FREEZE_DRIED','MEDICINE','FUEL','STAPLES','OTHER')),
+    unit varchar(255) not null check (unit in ('LITERS','KG','CANS','PIECES','GRAMS')),
+    targetQuantity float(53) not null,
+    notes varchar(255),
+    primary key (id)
+);
+
+create table StockEntry (
+    id bigint not null,
+    product_id bigint not null,
+    quantity float(53) not null,
+    subType varchar(255),
+    purchasedDate date,
+    expiryDate date,
+    location varchar(255),
+    notes varchar(255),
+    primary key (id),
+    constraint stockentry_product_fk foreign key (product_id) references Product
+);
+
+create table users (
+    id bigint not null,
+    username varchar(255) not null unique,
+    password varchar(255) not null,
+    role varchar(255) not null,
+    primary key (id)
+);
@@ -0,0 +1,8 @@
+-- Per-product stock listing: WHERE product_id = ? ORDER BY expiryDate, id (also serves the foreign key)
+create index if not exists stockentry_product_expiry_idx on StockEntry (product_id, expiryDate, id);
+
+-- Expired/expiring listings: range on expiryDate ORDER BY expiryDate, id
+create index if not exists stockentry_expiry_idx on StockEntry (expiryDate, id);
+
+-- Product listing filtered by category, ordered by id
+create index if not exists product_category_idx on Product (category, id);
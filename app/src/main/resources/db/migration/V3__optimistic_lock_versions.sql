@@ -0,0 +1,3 @@
+-- Optimistic lock versions, exposed as ETags
+alter table Product add column version bigint not null default 0;
+alter table StockEntry add column version bigint not null default 0;
@@ -0,0 +1,9 @@
+-- Change counter for collection ETags, incremented by every product or stock change
+create table InventoryRevision (
+    id integer not null,
+    revision bigint not null,
+    changedAt timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+insert into InventoryRevision (id, revision, changedAt) values (1, 0, now());
@@ -0,0 +1,5 @@
+-- Stored per-product stock total, kept up to date by every stock change
+alter table Product add column if not exists currentStock float(53) not null default 0;
+
+update Product p
+set currentStock = coalesce((select sum(s.quantity) from StockEntry s where s.product_id = p.id), 0);
@@ -12,6 +12,13 @@ class ProductResourceIT {
 
   @Test
   void listProductsReturnsEmptyInitially() {
-    given().when().get("/products").then().statusCode(200).body("$", hasSize(0));
+    given()
+        .auth()
+        .basic("user", "user")
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(0));
   }
 }
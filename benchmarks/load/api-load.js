@@ -0,0 +1,67 @@
+// k6 load test for comparing the worker-pool and virtual-thread builds, see "Load tests" in README.md.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e VUS=400 benchmarks/load/api-load.js
+//
+// Each virtual user repeatedly lists products, reads one product's stock and adjusts a stock entry,
+// authenticating with HTTP Basic as the admin user. Polls never send If-None-Match, so every request
+// reaches the resource and the database.
+import http from 'k6/http';
+import encoding from 'k6/encoding';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const AUTH = 'Basic ' + encoding.b64encode(`${__ENV.USERNAME || 'admin'}:${__ENV.PASSWORD || 'admin'}`);
+const PRODUCTS = Number(__ENV.PRODUCTS || 50);
+
+export const options = {
+  scenarios: {
+    api: {
+      executor: 'constant-vus',
+      vus: Number(__ENV.VUS || 200),
+      duration: __ENV.DURATION || '60s',
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const params = { headers: { Authorization: AUTH, 'Content-Type': 'application/json' } };
+
+export function setup() {
+  const ids = [];
+  for (let i = 0; i < PRODUCTS; i++) {
+    const product = http.post(
+      `${BASE_URL}/products`,
+      JSON.stringify({ name: `Load test ${i}`, category: 'PRESERVED_FOOD', unit: 'CANS', targetQuantity: 10 }),
+      params,
+    );
+    const productId = product.json('id');
+    const entry = http.post(
+      `${BASE_URL}/products/${productId}/stock`,
+      JSON.stringify({ quantity: 1000000, purchasedDate: '2026-01-01', expiryDate: '2036-01-01' }),
+      params,
+    );
+    ids.push({ productId, entryId: entry.json('id') });
+  }
+  return ids;
+}
+
+export default function (ids) {
+  const { productId, entryId } = ids[Math.floor(Math.random() * ids.length)];
+
+  check(http.get(`${BASE_URL}/products?limit=20`, params), { 'list products': (r) => r.status === 200 });
+  check(http.get(`${BASE_URL}/products/${productId}/stock`, params), {
+    'product stock': (r) => r.status === 200,
+  });
+  check(http.patch(`${BASE_URL}/stock`, JSON.stringify([{ id: entryId, delta: -1 }]), params), {
+    'adjust stock': (r) => r.status === 200,
+  });
+}
+
+export function teardown(ids) {
+  for (const { productId } of ids) {
+    http.del(`${BASE_URL}/products/${productId}`, null, params);
+  }
+}
@@ -0,0 +1,23 @@
+package se.oskr.benchmarks;
+
+import io.quarkus.runtime.QuarkusApplication;
+import io.quarkus.runtime.annotations.QuarkusMain;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs JMH inside the booted Quarkus application so benchmarks can use the real CDI beans and
+ * persistence unit. Accepts the usual JMH command line, e.g. {@code -p entries=1000 ServiceBench}.
+ * Forking is always disabled because a forked JVM would not have Quarkus started.
+ */
+@QuarkusMain
+public class BenchmarkMain implements QuarkusApplication {
+
+  @Override
+  public int run(String... args) throws Exception {
+    var options = new OptionsBuilder().parent(new CommandLineOptions(args)).forks(0).build();
+    new Runner(options).run();
+    return 0;
+  }
+}
@@ -0,0 +1,68 @@
+package se.oskr.benchmarks;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.arc.Unremovable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Replaces the inventory with generated data directly in SQL, so a million stock entries take
+ * seconds rather than the minutes entity persists would. Expiry dates spread evenly from a year ago
+ * to two years ahead, every tenth entry has none, and target quantities vary so that some products
+ * are low on stock.
+ */
+@Unremovable
+@ApplicationScoped
+public class InventorySeeder {
+
+  @Inject AgroalDataSource dataSource;
+
+  public void seed(int entries, int entriesPerProduct) {
+    int products = Math.max(1, entries / entriesPerProduct);
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("TRUNCATE StockEntry, Product");
+      try (PreparedStatement insert =
+          connection.prepareStatement(
+              """
+              INSERT INTO Product (id, name, category, unit, targetQuantity, currentStock)
+              SELECT g, 'Product ' || g,
+                     (ARRAY['WATER', 'PRESERVED_FOOD', 'DRY_GOODS', 'FREEZE_DRIED',
+                            'MEDICINE', 'FUEL', 'STAPLES', 'OTHER'])[1 + g % 8],
+                     'PIECES', 10 + (g % 10) * 40, 0
+              FROM generate_series(1, ?) g
+              """)) {
+        insert.setInt(1, products);
+        insert.executeUpdate();
+      }
+      try (PreparedStatement insert =
+          connection.prepareStatement(
+              """
+              INSERT INTO StockEntry (id, product_id, quantity, purchasedDate, expiryDate)
+              SELECT g, 1 + g % ?, 1 + g % 5, CURRENT_DATE - 400,
+                     CASE WHEN g % 10 = 0 THEN NULL ELSE CURRENT_DATE - 365 + g % 1095 END
+              FROM generate_series(1, ?) g
+              """)) {
+        insert.setInt(1, products);
+        insert.setInt(2, entries);
+        insert.executeUpdate();
+      }
+      statement.execute(
+          """
+          UPDATE Product p SET currentStock = s.total
+          FROM (SELECT product_id, SUM(quantity) AS total FROM StockEntry GROUP BY product_id) s
+          WHERE s.product_id = p.id
+          """);
+      statement.execute("SELECT setval('Product_SEQ', " + products + ")");
+      statement.execute("SELECT setval('StockEntry_SEQ', " + entries + ")");
+      statement.execute("ANALYZE Product");
+      statement.execute("ANALYZE StockEntry");
+    } catch (SQLException e) {
+      throw new IllegalStateException("Failed to seed " + entries + " stock entries", e);
+    }
+  }
+}
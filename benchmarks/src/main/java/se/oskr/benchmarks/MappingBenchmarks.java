@@ -0,0 +1,136 @@
+package se.oskr.benchmarks;
+
+import io.quarkus.arc.Arc;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import se.oskr.DtoMapper;
+import se.oskr.core.domain.Category;
+import se.oskr.core.domain.Product;
+import se.oskr.core.domain.StockEntry;
+import se.oskr.core.domain.Unit;
+import se.oskr.core.service.ExpiryClassifier;
+import se.oskr.core.service.ProductView;
+import se.oskr.core.service.StockEntryView;
+
+/**
+ * Per-item cost of expiry classification and DTO mapping, without the database. Listings map the
+ * views their queries return; writes map the entities they changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MappingBenchmarks {
+
+  private static final int SIZE = 1000;
+
+  private final Product[] products = new Product[SIZE];
+  private final StockEntry[] entries = new StockEntry[SIZE];
+  private final ProductView[] productViews = new ProductView[SIZE];
+  private final StockEntryView[] entryViews = new StockEntryView[SIZE];
+
+  private ExpiryClassifier expiryClassifier;
+  private DtoMapper dtoMapper;
+
+  @Setup
+  public void setUp() {
+    expiryClassifier = Arc.container().instance(ExpiryClassifier.class).get();
+    dtoMapper = Arc.container().instance(DtoMapper.class).get();
+    Category[] categories = Category.values();
+    LocalDate today = LocalDate.now();
+    for (int i = 0; i < SIZE; i++) {
+      Product product = new Product();
+      product.id = (long) i;
+      product.name = "Product " + i;
+      product.category = categories[i % categories.length];
+      product.unit = Unit.PIECES;
+      product.targetQuantity = 10;
+      product.currentStock = i % 20;
+      products[i] = product;
+
+      StockEntry entry = new StockEntry();
+      entry.id = (long) i;
+      entry.product = product;
+      entry.quantity = 1;
+      entry.purchasedDate = today.minusDays(400);
+      entry.expiryDate = i % 10 == 0 ? null : today.minusDays(365).plusDays(i);
+      entry.location = "Shelf " + i % 5;
+      entries[i] = entry;
+
+      productViews[i] =
+          new ProductView(
+              product.id,
+              product.name,
+              product.category,
+              product.unit,
+              product.targetQuantity,
+              product.currentStock,
+              product.notes,
+              product.version);
+      entryViews[i] =
+          new StockEntryView(
+              entry.id,
+              product.id,
+              entry.quantity,
+              entry.subType,
+              entry.purchasedDate,
+              entry.expiryDate,
+              entry.location,
+              entry.notes,
+              entry.version,
+              expiryClassifier.classify(entry.expiryDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void expiryStatus(Blackhole blackhole) {
+    for (StockEntry entry : entries) {
+      blackhole.consume(expiryClassifier.classify(entry.expiryDate));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void toProductDto(Blackhole blackhole) {
+    for (Product product : products) {
+      blackhole.consume(dtoMapper.toProductDto(product));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void toStockEntryDto(Blackhole blackhole) {
+    for (StockEntry entry : entries) {
+      blackhole.consume(dtoMapper.toStockEntryDto(entry));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void productViewToDto(Blackhole blackhole) {
+    for (ProductView product : productViews) {
+      blackhole.consume(dtoMapper.toProductDto(product));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public void stockEntryViewToDto(Blackhole blackhole) {
+    for (StockEntryView entry : entryViews) {
+      blackhole.consume(dtoMapper.toStockEntryDto(entry));
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package se.oskr.benchmarks;
+
+import io.quarkus.arc.Arc;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.oskr.core.domain.StockEntry;
+import se.oskr.core.service.ProductView;
+import se.oskr.core.service.ReactiveProductService;
+import se.oskr.core.service.ReactiveStockService;
+import se.oskr.core.service.StockEntryView;
+import se.oskr.core.service.StockService;
+
+/**
+ * Service calls behind the read endpoints and the stock write path, against a database seeded with
+ * {@code entries} stock entries. The listings are the reactive queries the list endpoints serve,
+ * awaited on the benchmark thread, so each measurement includes the round trip to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServiceBenchmarks {
+
+  private static final int PAGE_SIZE = 100;
+
+  @Param({"1000", "100000", "1000000"})
+  public int entries;
+
+  @Param({"20"})
+  public int entriesPerProduct;
+
+  private ReactiveProductService reactiveProductService;
+  private ReactiveStockService reactiveStockService;
+  private StockService stockService;
+  private double quantity;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    var container = Arc.container();
+    container.instance(InventorySeeder.class).get().seed(entries, entriesPerProduct);
+    reactiveProductService = container.instance(ReactiveProductService.class).get();
+    reactiveStockService = container.instance(ReactiveStockService.class).get();
+    stockService = container.instance(StockService.class).get();
+  }
+
+  @Benchmark
+  public List<ProductView> listLowStock() {
+    return reactiveProductService.listLowStock().await().indefinitely();
+  }
+
+  @Benchmark
+  public List<ProductView> listProductsFirstPage() {
+    return reactiveProductService.list(null, null, PAGE_SIZE).await().indefinitely();
+  }
+
+  @Benchmark
+  public List<StockEntryView> listProductStock() {
+    return reactiveStockService.listForProduct(1, null, null, PAGE_SIZE).await().indefinitely();
+  }
+
+  @Benchmark
+  public List<StockEntryView> listExpiringFirstPage() {
+    return reactiveStockService.listExpiring(30, null, PAGE_SIZE).await().indefinitely();
+  }
+
+  @Benchmark
+  public List<StockEntryView> listExpiredFirstPage() {
+    return reactiveStockService.listExpired(null, PAGE_SIZE).await().indefinitely();
+  }
+
+  /** A quantity change, which also maintains the product's stored current stock. */
+  @Benchmark
+  public Optional<StockEntry> updateQuantity() {
+    quantity = quantity == 1 ? 2 : 1;
+    return stockService.updateQuantity(1, null, quantity);
+  }
+}
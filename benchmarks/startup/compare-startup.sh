@@ -0,0 +1,132 @@
+#!/usr/bin/env bash
+# Compares startup time and memory of the JVM and native builds of the app module, see "Native
+# executable" in README.md.
+#
+#   DB_URL=jdbc:postgresql://localhost:5432/prepper DB_USER=postgres DB_PASSWORD=postgres \
+#     benchmarks/startup/compare-startup.sh
+#
+# Each build found in app/target is started RUNS times (default 5). For every run it records the
+# startup time Quarkus reports, the wall-clock time until /q/health/ready answers, and the resident
+# set size once ready and after WARMUP_REQUESTS authenticated requests. Prints the medians as a
+# table. When MAX_NATIVE_STARTUP_MS is set, exits non-zero if the native median startup exceeds it.
+# When MAX_NATIVE_STARTUP_PERCENT is set, exits non-zero if the native median startup exceeds that
+# percentage of the JVM median measured in the same run, which holds on any hardware.
+set -euo pipefail
+
+cd "$(dirname "$0")/../.."
+
+: "${DB_URL:?DB_URL must be set}"
+: "${DB_USER:?DB_USER must be set}"
+: "${DB_PASSWORD:?DB_PASSWORD must be set}"
+# The reactive client takes the same database without the jdbc: prefix
+DB_REACTIVE_URL="${DB_REACTIVE_URL:-${DB_URL#jdbc:}}"
+RUNS="${RUNS:-5}"
+PORT="${PORT:-18080}"
+WARMUP_REQUESTS="${WARMUP_REQUESTS:-200}"
+ADMIN_PASSWORD="${APP_ADMIN_PASSWORD:-admin}"
+TOKEN_SECRET="${APP_TOKEN_SECRET:-startup-comparison-token-secret-0123456789}"
+export DB_URL DB_REACTIVE_URL DB_USER DB_PASSWORD APP_ADMIN_PASSWORD="$ADMIN_PASSWORD" APP_TOKEN_SECRET="$TOKEN_SECRET" \
+  QUARKUS_HTTP_PORT="$PORT"
+
+jar=app/target/quarkus-app/quarkus-run.jar
+runner=$(ls app/target/*-runner 2>/dev/null | head -n 1 || true)
+
+now_ms() { echo $(($(date +%s%N) / 1000000)); }
+
+rss_kb() { awk '/^VmRSS:/ { print $2 }' "/proc/$1/status"; }
+
+median() { sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'; }
+
+# Starts one build and prints "reported_ms ready_ms ready_rss_kb warm_rss_kb"
+measure() {
+  local log
+  log=$(mktemp)
+  local start
+  start=$(now_ms)
+  "$@" >"$log" 2>&1 &
+  local pid=$!
+  until curl -sf -o /dev/null "http://localhost:$PORT/q/health/ready"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+      cat "$log" >&2
+      return 1
+    fi
+    sleep 0.005
+  done
+  local ready=$(($(now_ms) - start))
+  local ready_rss
+  ready_rss=$(rss_kb "$pid")
+  for _ in $(seq "$WARMUP_REQUESTS"); do
+    curl -sf -o /dev/null -u "admin:$ADMIN_PASSWORD" "http://localhost:$PORT/products"
+  done
+  local warm_rss
+  warm_rss=$(rss_kb "$pid")
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  local reported
+  reported=$(sed -n 's/.* started in \([0-9.]*\)s\..*/\1/p' "$log" | awk '{ print int($1 * 1000) }')
+  rm -f "$log"
+  echo "$reported $ready $ready_rss $warm_rss"
+}
+
+# Runs one build RUNS times and prints its medians as a table row
+compare() {
+  local name=$1
+  shift
+  local results=()
+  for _ in $(seq "$RUNS"); do
+    results+=("$(measure "$@")")
+  done
+  local column
+  local medians=()
+  for column in 1 2 3 4; do
+    medians+=("$(printf '%s\n' "${results[@]}" | awk -v c="$column" '{ print $c }' | median)")
+  done
+  printf '| %-6s | %11s | %13s | %14s | %15s |\n' "$name" "${medians[0]}" "${medians[1]}" \
+    "$((medians[2] / 1024))" "$((medians[3] / 1024))"
+  if [ "$name" = native ]; then
+    native_startup=${medians[0]}
+  else
+    jvm_startup=${medians[0]}
+  fi
+}
+
+if [ ! -f "$jar" ] && [ -z "$runner" ]; then
+  echo "Build the application first: ./mvnw package -pl app -am -DskipTests [-Dnative]" >&2
+  exit 1
+fi
+
+echo "Medians of $RUNS runs"
+echo
+echo "| Build  | Startup, ms | Ready, ms     | RSS ready, MiB | RSS warmed, MiB |"
+echo "|--------|-------------|---------------|----------------|-----------------|"
+native_startup=
+jvm_startup=
+if [ -f "$jar" ]; then
+  compare jvm java -jar "$jar"
+fi
+if [ -n "$runner" ]; then
+  compare native "$runner"
+fi
+
+if [ -n "${MAX_NATIVE_STARTUP_MS:-}" ]; then
+  if [ -z "$native_startup" ]; then
+    echo "No native executable in app/target to check against MAX_NATIVE_STARTUP_MS" >&2
+    exit 1
+  fi
+  if [ "$native_startup" -gt "$MAX_NATIVE_STARTUP_MS" ]; then
+    echo "Native startup of ${native_startup} ms exceeds ${MAX_NATIVE_STARTUP_MS} ms" >&2
+    exit 1
+  fi
+fi
+
+if [ -n "${MAX_NATIVE_STARTUP_PERCENT:-}" ]; then
+  if [ -z "$native_startup" ] || [ -z "$jvm_startup" ]; then
+    echo "MAX_NATIVE_STARTUP_PERCENT needs both the JVM and the native build in app/target" >&2
+    exit 1
+  fi
+  if [ $((native_startup * 100)) -gt $((jvm_startup * MAX_NATIVE_STARTUP_PERCENT)) ]; then
+    echo "Native startup of ${native_startup} ms exceeds ${MAX_NATIVE_STARTUP_PERCENT}% of the" \
+      "JVM startup of ${jvm_startup} ms" >&2
+    exit 1
+  fi
+fi
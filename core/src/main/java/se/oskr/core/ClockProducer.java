@@ -0,0 +1,18 @@
+package se.oskr.core;
+
+import io.quarkus.arc.DefaultBean;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import java.time.Clock;
+
+@ApplicationScoped
+public class ClockProducer {
+
+  /** System clock in the default time zone; tests can replace it by declaring their own bean. */
+  @Produces
+  @DefaultBean
+  @ApplicationScoped
+  Clock clock() {
+    return Clock.systemDefaultZone();
+  }
+}
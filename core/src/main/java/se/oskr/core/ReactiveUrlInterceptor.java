@@ -0,0 +1,39 @@
+package se.oskr.core;
+
+import io.smallrye.config.ConfigSourceInterceptor;
+import io.smallrye.config.ConfigSourceInterceptorContext;
+import io.smallrye.config.ConfigValue;
+
+/**
+ * Defaults each datasource's reactive URL to its JDBC URL without the {@code jdbc:} prefix, so a
+ * deployment that only sets {@code DB_URL} (and {@code DB_REPLICA_URL}) reaches the same database
+ * through the reactive client. An explicitly configured reactive URL is left alone.
+ */
+public class ReactiveUrlInterceptor implements ConfigSourceInterceptor {
+
+  private static final String PREFIX = "quarkus.datasource.";
+
+  private static final String REACTIVE_URL = ".reactive.url";
+
+  private static final String JDBC_URL = ".jdbc.url";
+
+  private static final String JDBC_PREFIX = "jdbc:";
+
+  @Override
+  public ConfigValue getValue(ConfigSourceInterceptorContext context, String name) {
+    ConfigValue value = context.proceed(name);
+    if (!name.startsWith(PREFIX) || !name.endsWith(REACTIVE_URL) || isSet(value)) {
+      return value;
+    }
+    String dataSource = name.substring(0, name.length() - REACTIVE_URL.length());
+    ConfigValue jdbcUrl = context.proceed(dataSource + JDBC_URL);
+    if (!isSet(jdbcUrl) || !jdbcUrl.getValue().startsWith(JDBC_PREFIX)) {
+      return value;
+    }
+    return jdbcUrl.withName(name).withValue(jdbcUrl.getValue().substring(JDBC_PREFIX.length()));
+  }
+
+  private static boolean isSet(ConfigValue value) {
+    return value != null && value.getValue() != null && !value.getValue().isEmpty();
+  }
+}
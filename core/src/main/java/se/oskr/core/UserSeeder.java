@@ -0,0 +1,58 @@
+package se.oskr.core;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.jboss.logging.Logger;
+import se.oskr.core.service.SeedUser;
+import se.oskr.core.service.UserService;
+
+/**
+ * Seeds the admin and user accounts from {@code app.auth.admin-password} and {@code
+ * app.auth.user-password}. Missing accounts are created during startup, so a fresh database can be
+ * logged into at once. Checking that an existing account still has the configured password takes a
+ * BCrypt verification, so that runs in the background once the application is up; until it
+ * finishes, the previous password keeps working.
+ */
+@ApplicationScoped
+public class UserSeeder {
+
+  private static final Logger LOG = Logger.getLogger(UserSeeder.class);
+
+  @Inject UserService userService;
+
+  @Inject ManagedExecutor executor;
+
+  @ConfigProperty(name = "app.auth.admin-password")
+  String adminPassword;
+
+  @ConfigProperty(name = "app.auth.user-password")
+  String userPassword;
+
+  void onStart(@Observes StartupEvent evt) {
+    userService.seed(seedUsers(), false);
+    executor
+        .runAsync(
+            () -> {
+              int changed = userService.seed(seedUsers(), true);
+              if (changed > 0) {
+                LOG.infof("Updated %d seed user(s) to the configured passwords", changed);
+              }
+            })
+        .exceptionally(
+            e -> {
+              LOG.error("Checking the seed user passwords failed", e);
+              return null;
+            });
+  }
+
+  private List<SeedUser> seedUsers() {
+    return List.of(
+        new SeedUser("admin", adminPassword, "admin,user"),
+        new SeedUser("user", userPassword, "user"));
+  }
+}
@@ -0,0 +1,11 @@
+package se.oskr.core.domain;
+
+/**
+ * Expiry state of a stock entry. The frontend uses this key together with the category for i18n
+ * lookups. Entries without an expiry date, or expiring later than the approaching threshold, have
+ * no status.
+ */
+public enum ExpiryStatus {
+  EXPIRED,
+  APPROACHING
+}
@@ -0,0 +1,25 @@
+package se.oskr.core.domain;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.Instant;
+
+/**
+ * Single row counting changes to products and stock, from which the collection endpoints derive
+ * their ETag and Last-Modified headers. If the row is missing, the first change creates it.
+ */
+@Entity
+public class InventoryRevision extends PanacheEntityBase {
+
+  public static final int ID = 1;
+
+  @Id public int id;
+
+  @Column(nullable = false)
+  public long revision;
+
+  @Column(nullable = false)
+  public Instant changedAt;
+}
@@ -1,12 +1,19 @@
 package se.oskr.core.domain;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
+@Cacheable
+@Table(indexes = @Index(name = "product_category_idx", columnList = "category, id"))
 public class Product extends PanacheEntity {
 
   @Column(nullable = false)
@@ -23,5 +30,24 @@ public class Product extends PanacheEntity {
   @Column(nullable = false)
   public double targetQuantity;
 
+  /**
+   * Sum of the quantities of this product's stock entries. Maintained by {@code StockService},
+   * which re-reads the product under a row lock before changing it. Every change increments the
+   * version, so a product update based on an older read fails its version check instead of
+   * overwriting a concurrent stock change.
+   */
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  public double currentStock;
+
   public String notes;
+
+  /**
+   * Optimistic lock version, exposed to clients as the ETag. Set-based updates must use {@code
+   * UPDATE VERSIONED} so they increment it too.
+   */
+  @Version
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  public long version;
 }
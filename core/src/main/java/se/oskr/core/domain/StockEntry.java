@@ -4,13 +4,26 @@ import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDate;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
+@Table(
+    indexes = {
+      @Index(name = "stockentry_product_expiry_idx", columnList = "product_id, expiryDate, id"),
+      @Index(name = "stockentry_expiry_idx", columnList = "expiryDate, id")
+    })
 public class StockEntry extends PanacheEntity {
 
-  @ManyToOne(fetch = FetchType.EAGER, optional = false)
+  /**
+   * Lazy: stock queries select the columns they need through projections, and write paths only need
+   * the product id, which the proxy holds without loading the row.
+   */
+  @ManyToOne(fetch = FetchType.LAZY, optional = false)
   public Product product;
 
   @Column(nullable = false)
@@ -25,4 +38,13 @@ public class StockEntry extends PanacheEntity {
   public String location;
 
   public String notes;
+
+  /**
+   * Optimistic lock version, exposed to clients as the ETag. Set-based updates must use {@code
+   * UPDATE VERSIONED} so they increment it too.
+   */
+  @Version
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  public long version;
 }
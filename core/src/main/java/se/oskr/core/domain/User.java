@@ -1,6 +1,5 @@
 package se.oskr.core.domain;
 
-import io.quarkus.elytron.security.common.BcryptUtil;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -19,10 +18,11 @@ public class User extends PanacheEntity {
   @Column(nullable = false)
   public String role;
 
-  public static void add(String username, String password, String role) {
+  /** Stores a user whose password has already been hashed with BCrypt. */
+  public static void add(String username, String passwordHash, String role) {
     User user = new User();
     user.username = username;
-    user.password = BcryptUtil.bcryptHash(password);
+    user.password = passwordHash;
     user.role = role;
     user.persist();
   }
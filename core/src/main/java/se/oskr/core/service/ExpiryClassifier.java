@@ -0,0 +1,66 @@
+package se.oskr.core.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Clock;
+import java.time.LocalDate;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import se.oskr.core.domain.ExpiryStatus;
+
+/**
+ * Classifies expiry dates relative to today. The date boundaries are computed once per day and
+ * reused, so classifying an entry costs a clock read in milliseconds and two date comparisons.
+ */
+@ApplicationScoped
+public class ExpiryClassifier {
+
+  @Inject Clock clock;
+
+  @ConfigProperty(name = "app.stock.approaching-days", defaultValue = "30")
+  int approachingDays;
+
+  private volatile Window window;
+
+  /**
+   * Returns {@link ExpiryStatus#EXPIRED} for dates before today, {@link ExpiryStatus#APPROACHING}
+   * for dates up to {@code app.stock.approaching-days} days ahead, and {@code null} otherwise or
+   * when there is no expiry date.
+   */
+  public ExpiryStatus classify(LocalDate expiryDate) {
+    if (expiryDate == null) {
+      return null;
+    }
+    Window current = window();
+    if (expiryDate.isBefore(current.today())) {
+      return ExpiryStatus.EXPIRED;
+    }
+    if (!expiryDate.isAfter(current.approachingUntil())) {
+      return ExpiryStatus.APPROACHING;
+    }
+    return null;
+  }
+
+  /** Today's date according to the injected clock. */
+  public LocalDate today() {
+    return window().today();
+  }
+
+  /** Last date that still counts as {@link ExpiryStatus#APPROACHING}. */
+  public LocalDate approachingUntil() {
+    return window().approachingUntil();
+  }
+
+  private Window window() {
+    Window current = window;
+    long now = clock.millis();
+    if (current == null || now >= current.validUntilMillis()) {
+      LocalDate today = LocalDate.now(clock);
+      long tomorrow = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+      current = new Window(today, today.plusDays(approachingDays), tomorrow);
+      window = current;
+    }
+    return current;
+  }
+
+  private record Window(LocalDate today, LocalDate approachingUntil, long validUntilMillis) {}
+}
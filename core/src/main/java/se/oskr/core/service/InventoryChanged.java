@@ -0,0 +1,7 @@
+package se.oskr.core.service;
+
+/**
+ * Fired inside a transaction that changes products or stock entries. Once it commits, the
+ * inventory revision is incremented.
+ */
+public record InventoryChanged() {}
@@ -0,0 +1,229 @@
+package se.oskr.core.service;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.jboss.logging.Logger;
+import se.oskr.core.domain.InventoryRevision;
+import se.oskr.core.domain.Product;
+
+/**
+ * Tracks the {@link InventoryRevision}, which is incremented after every committed product and
+ * stock change. The current revision is kept in memory and re-read at most every {@code
+ * app.inventory.revision-check-interval}, so checking whether anything changed usually costs no
+ * query. A change made through this instance is seen immediately; one made through another
+ * instance after at most the interval.
+ *
+ * <p>The increment runs in its own short transaction once the writer has committed, so writers
+ * don't hold the revision row's lock and don't queue on each other through it. The revision can
+ * briefly lag the data it describes, which only costs a poll in that window a full response; it
+ * never runs ahead of it, so a client can't be told an unseen change is unchanged.
+ *
+ * <p>Revisions also keep the in-process product cache (the second-level cache region of {@link
+ * Product}) coherent across instances. Hibernate invalidates it for this instance's own writes;
+ * when the revision moves past what this instance committed, another instance changed the inventory
+ * and the product cache is evicted. The revision is re-read every interval even when nobody polls.
+ */
+@ApplicationScoped
+public class InventoryRevisions {
+
+  private static final Logger LOG = Logger.getLogger(InventoryRevisions.class);
+
+  private static final String INCREMENT =
+      """
+      INSERT INTO InventoryRevision (id, revision, changedAt)
+      VALUES (:id, 1, clock_timestamp())
+      ON CONFLICT (id) DO UPDATE
+      SET revision = InventoryRevision.revision + 1,
+          changedAt = GREATEST(InventoryRevision.changedAt, clock_timestamp())
+      RETURNING revision
+      """;
+
+  @Inject ReadSessions readSessions;
+
+  @Inject ReactiveReads reactiveReads;
+
+  @Inject MappedTables mappedTables;
+
+  @Inject Event<InventoryChanged> inventoryChanged;
+
+  @ConfigProperty(name = "app.inventory.revision-check-interval", defaultValue = "1S")
+  Duration checkInterval;
+
+  @Inject SessionFactory sessionFactory;
+
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /** Set when incrementing the revision failed, until the scheduled check has retried it. */
+  private final AtomicBoolean bumpFailed = new AtomicBoolean();
+
+  /** Highest revision the product cache is known to reflect, or -1 before the first read. */
+  private long known = -1;
+
+  private volatile Checked checked;
+
+  /** Revision number and time of the last change, or revision 0 if nothing has changed yet. */
+  @RegisterForReflection
+  public record Revision(long number, Instant changedAt) {}
+
+  /**
+   * Increments the revision once the current transaction has committed. Rolled back changes leave
+   * it alone.
+   */
+  void increment() {
+    inventoryChanged.fire(new InventoryChanged());
+  }
+
+  void onInventoryChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) InventoryChanged e) {
+    bump();
+  }
+
+  /**
+   * Increments the revision in a new transaction, so the row is only locked for the update itself.
+   * The change time is taken when the row is updated and never moves backwards, so writers
+   * committing out of order can't make Last-Modified go back in time.
+   *
+   * <p>The change has already committed, so a failure here can't roll it back. Until the revision
+   * moves, conditional requests would keep answering 304 for the data before it, so the scheduled
+   * check retries the bump.
+   */
+  private void bump() {
+    long revision;
+    try {
+      revision =
+          QuarkusTransaction.requiringNew()
+              .call(
+                  () ->
+                      InventoryRevision.getSession()
+                          .createNativeQuery(INCREMENT, Long.class)
+                          .setParameter("id", InventoryRevision.ID)
+                          .getSingleResult());
+    } catch (RuntimeException ex) {
+      LOG.warn("Failed to increment the inventory revision, retrying on the next check", ex);
+      bumpFailed.set(true);
+      invalidate();
+      return;
+    }
+    recordLocalChange(revision);
+  }
+
+  public Revision current() {
+    Optional<Revision> cached = cached();
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    long generation = invalidations.get();
+    return record(QuarkusTransaction.joiningExisting().call(this::read), generation);
+  }
+
+  /**
+   * Like {@link #current()}, but reads through the reactive client, so it can run on an I/O thread.
+   * Usually completes immediately from the revision held in memory.
+   */
+  public Uni<Revision> currentAsync() {
+    Optional<Revision> cached = cached();
+    if (cached.isPresent()) {
+      return Uni.createFrom().item(cached.get());
+    }
+    long generation = invalidations.get();
+    return reactiveReads
+        .list(
+            SqlQuery.select(mappedTables.of(InventoryRevision.class), "{revision}, {changedAt}")
+                .where("{id} = ?", InventoryRevision.ID),
+            row -> new Revision(row.getLong(0), row.getOffsetDateTime(1).toInstant()))
+        .map(
+            rows ->
+                record(rows.isEmpty() ? new Revision(0, Instant.EPOCH) : rows.get(0), generation));
+  }
+
+  private synchronized Revision record(Revision revision, long generation) {
+    if (revision.number() > known) {
+      // Changed through another instance: the product cache here may hold older data
+      if (known >= 0) {
+        evictProductCache();
+      }
+      known = revision.number();
+    }
+    // A read that overlapped a local change may predate it; the next call reads again
+    if (invalidations.get() == generation) {
+      checked = new Checked(revision, System.nanoTime());
+    }
+    return revision;
+  }
+
+  /**
+   * Re-reads the revision every check interval, so the product cache drops changes made through
+   * other instances even when no collection is being polled. A failed increment is retried first.
+   */
+  @Scheduled(
+      identity = "inventory-revision-check",
+      every = "${app.inventory.revision-check-interval:1S}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledCheck() {
+    if (bumpFailed.getAndSet(false)) {
+      bump();
+    }
+    current();
+  }
+
+  /**
+   * Returns the revision if it was read within the check interval and nothing has changed through
+   * this instance since, without querying.
+   */
+  private Optional<Revision> cached() {
+    Checked current = checked;
+    if (current == null || System.nanoTime() - current.atNanos() >= checkInterval.toNanos()) {
+      return Optional.empty();
+    }
+    return Optional.of(current.revision());
+  }
+
+  private synchronized void recordLocalChange(long revision) {
+    invalidate();
+    // Hibernate already invalidated what this change touched; a skipped revision was committed
+    // through another instance
+    if (known >= 0 && revision > known + 1) {
+      evictProductCache();
+    }
+    known = Math.max(known, revision);
+  }
+
+  /** Makes the next call read the revision again, even if one read since may be reused. */
+  private synchronized void invalidate() {
+    invalidations.incrementAndGet();
+    checked = null;
+  }
+
+  private void evictProductCache() {
+    Cache cache = sessionFactory.getCache();
+    cache.evictEntityData(Product.class);
+  }
+
+  private Revision read() {
+    return readSessions.read(
+        session ->
+            session
+                .createSelectionQuery(
+                    "SELECT r.revision, r.changedAt FROM InventoryRevision r WHERE r.id = :id",
+                    Revision.class)
+                .setParameter("id", InventoryRevision.ID)
+                .uniqueResultOptional()
+                .orElse(new Revision(0, Instant.EPOCH)));
+  }
+
+  private record Checked(Revision revision, long atNanos) {}
+}
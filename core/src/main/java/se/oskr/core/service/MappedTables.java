@@ -0,0 +1,64 @@
+package se.oskr.core.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.mapping.ModelPart;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Table and column names of mapped entities, read from Hibernate's mapping. SQL that runs outside
+ * Hibernate, on the reactive client, names columns through it, so it follows the JPA mapping
+ * instead of repeating it.
+ */
+@ApplicationScoped
+class MappedTables {
+
+  @Inject SessionFactory sessionFactory;
+
+  private final Map<Class<?>, MappedTable> tables = new ConcurrentHashMap<>();
+
+  MappedTable of(Class<?> entity) {
+    return tables.computeIfAbsent(entity, this::read);
+  }
+
+  private MappedTable read(Class<?> entity) {
+    EntityPersister persister =
+        sessionFactory
+            .unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel()
+            .getEntityDescriptor(entity);
+    Map<String, String> columns = new HashMap<>();
+    addColumn(columns, persister.getIdentifierPropertyName(), persister.getIdentifierMapping());
+    persister.forEachAttributeMapping(
+        attribute -> addColumn(columns, attribute.getAttributeName(), attribute));
+    String table = ((AbstractEntityPersister) persister).getTableName();
+    return new MappedTable(table, Map.copyOf(columns));
+  }
+
+  /** Records the column of single-column attributes, including the foreign key of a to-one. */
+  private static void addColumn(Map<String, String> columns, String attribute, ModelPart part) {
+    if (part.getJdbcTypeCount() == 1) {
+      part.forEachSelectable(
+          (index, selectable) -> columns.put(attribute, selectable.getSelectionExpression()));
+    }
+  }
+
+  /** An entity's table, and the column each of its single-column attributes is stored in. */
+  record MappedTable(String name, Map<String, String> columns) {
+
+    /** Returns the attribute's column, failing for attributes that have none. */
+    String column(String attribute) {
+      String column = columns.get(attribute);
+      if (column == null) {
+        throw new IllegalStateException(name + " has no column for attribute " + attribute);
+      }
+      return column;
+    }
+  }
+}
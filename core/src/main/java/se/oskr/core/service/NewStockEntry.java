@@ -0,0 +1,13 @@
+package se.oskr.core.service;
+
+import java.time.LocalDate;
+
+/** Fields of a stock entry to be created for the product with id {@code productId}. */
+public record NewStockEntry(
+    long productId,
+    double quantity,
+    String subType,
+    LocalDate purchasedDate,
+    LocalDate expiryDate,
+    String location,
+    String notes) {}
@@ -0,0 +1,109 @@
+package se.oskr.core.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.quarkus.elytron.security.common.BcryptUtil;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Runs BCrypt on a dedicated pool of {@code app.auth.hashing.threads} threads (by default half the
+ * CPUs), so a burst of logins cannot take over the threads serving requests. At most {@code
+ * app.auth.hashing.queue-size} calls wait for a hashing thread; beyond that they fail at once with
+ * {@link RejectedExecutionException}.
+ *
+ * <p>{@link BcryptUtil} looks up Elytron's password factory through the security provider, which
+ * instantiates it by class name, so a native image has to register it for reflection.
+ */
+@ApplicationScoped
+@RegisterForReflection(
+    classNames = {
+      "org.wildfly.security.password.WildFlyElytronPasswordProvider",
+      "org.wildfly.security.password.impl.PasswordFactorySpiImpl"
+    })
+public class PasswordHasher {
+
+  @Inject MeterRegistry registry;
+
+  @ConfigProperty(name = "app.auth.hashing.threads")
+  Optional<Integer> threads;
+
+  @ConfigProperty(name = "app.auth.hashing.queue-size", defaultValue = "32")
+  int queueSize;
+
+  private ThreadPoolExecutor executor;
+
+  private Timer verification;
+
+  private Counter rejected;
+
+  @PostConstruct
+  void start() {
+    int size = threads.orElse(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    executor =
+        new ThreadPoolExecutor(
+            size,
+            size,
+            0,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            Thread.ofPlatform().name("password-hasher-", 0).daemon().factory());
+    ExecutorServiceMetrics.monitor(registry, executor, "password-hasher");
+    verification =
+        Timer.builder("auth.bcrypt.verification")
+            .description("Time spent verifying a password against its BCrypt hash")
+            .publishPercentileHistogram()
+            .register(registry);
+    rejected =
+        Counter.builder("auth.bcrypt.rejected")
+            .description("Password hashing calls rejected because the hashing queue was full")
+            .register(registry);
+  }
+
+  @PreDestroy
+  void stop() {
+    executor.shutdownNow();
+  }
+
+  /** Blocks until the password has been checked against the BCrypt hash. */
+  public boolean matches(String password, String hash) {
+    return run(() -> verification.record(() -> BcryptUtil.matches(password, hash)));
+  }
+
+  /** Blocks until the password has been hashed for storage. */
+  public String hash(String password) {
+    return run(() -> BcryptUtil.bcryptHash(password));
+  }
+
+  private <T> T run(Supplier<T> task) {
+    CompletableFuture<T> result;
+    try {
+      result = CompletableFuture.supplyAsync(task, executor);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw e;
+    }
+    try {
+      return result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
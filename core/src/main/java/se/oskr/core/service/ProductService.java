@@ -1,10 +1,11 @@
 package se.oskr.core.service;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import se.oskr.core.domain.Category;
 import se.oskr.core.domain.Product;
 import se.oskr.core.domain.StockEntry;
@@ -13,12 +14,22 @@ import se.oskr.core.domain.Unit;
 @ApplicationScoped
 public class ProductService {
 
+  @Inject ReadSessions readSessions;
+
+  @Inject InventoryRevisions inventoryRevisions;
+
+  @Inject MappedTables mappedTables;
+
+  @ConfigProperty(name = "app.stock.low-threshold", defaultValue = "0.25")
+  double lowStockThreshold;
+
+  /**
+   * Returns up to {@code limit} products ordered by id, starting after {@code afterId} (or from the
+   * first product if it is {@code null}).
+   */
   @Transactional
-  public List<Product> list(Category category) {
-    if (category != null) {
-      return Product.list("category", category);
-    }
-    return Product.listAll();
+  public List<ProductView> list(Category category, Long afterId, int limit) {
+    return listViews(ProductViewSql.list(mappedTables.of(Product.class), category, afterId, limit));
   }
 
   @Transactional
@@ -31,51 +42,93 @@ public class ProductService {
     product.targetQuantity = targetQuantity;
     product.notes = notes;
     product.persist();
+    inventoryRevisions.increment();
     return product;
   }
 
+  /**
+   * Returns the product, from the second-level cache when it holds it. A stock change only
+   * invalidates the cached entry of its own product.
+   */
   @Transactional
-  public Optional<Product> findById(long id) {
-    return Product.findByIdOptional(id);
+  public Optional<ProductView> findById(long id) {
+    return Optional.ofNullable(readSessions.find(Product.class, id))
+        .map(
+            p ->
+                new ProductView(
+                    p.id,
+                    p.name,
+                    p.category,
+                    p.unit,
+                    p.targetQuantity,
+                    p.currentStock,
+                    p.notes,
+                    p.version));
   }
 
+  /**
+   * Replaces the product's fields. With an {@code expectedVersion}, throws {@link
+   * jakarta.persistence.OptimisticLockException} if the product has a different version, including
+   * when it is changed concurrently before this update is flushed. Without one, the product is
+   * locked and the change always applies.
+   */
   @Transactional
   public Optional<Product> update(
-      long id, String name, Category category, Unit unit, double targetQuantity, String notes) {
-    return Product.<Product>findByIdOptional(id)
+      long id,
+      Long expectedVersion,
+      String name,
+      Category category,
+      Unit unit,
+      double targetQuantity,
+      String notes) {
+    return Product.<Product>findByIdOptional(id, Versions.lockMode(expectedVersion))
         .map(
             product -> {
+              Versions.check(product, product.version, expectedVersion);
               product.name = name;
               product.category = category;
               product.unit = unit;
               product.targetQuantity = targetQuantity;
               product.notes = notes;
+              // Flush now so the returned version is the new one and conflicts surface here
+              Product.flush();
+              inventoryRevisions.increment();
               return product;
             });
   }
 
+  /**
+   * Deletes the product and its stock entries. With an {@code expectedVersion}, throws {@link
+   * jakarta.persistence.OptimisticLockException} instead if the product has a different version.
+   */
   @Transactional
-  public boolean delete(long id) {
-    StockEntry.delete("product.id", id);
-    return Product.deleteById(id);
+  public boolean delete(long id, Long expectedVersion) {
+    return Product.<Product>findByIdOptional(id, Versions.lockMode(expectedVersion))
+        .map(
+            product -> {
+              Versions.check(product, product.version, expectedVersion);
+              StockEntry.delete("product.id", id);
+              product.delete();
+              Product.flush();
+              inventoryRevisions.increment();
+              return true;
+            })
+        .orElse(false);
   }
 
+  /**
+   * Returns products whose current stock is below {@code app.stock.low-threshold} (a fraction of
+   * the target quantity), ordered by stock ratio ascending.
+   */
   @Transactional
-  public double currentStock(long productId) {
-    Object result =
-        StockEntry.getEntityManager()
-            .createQuery(
-                "SELECT COALESCE(SUM(s.quantity), 0.0) FROM StockEntry s WHERE s.product.id = :id")
-            .setParameter("id", productId)
-            .getSingleResult();
-    return ((Number) result).doubleValue();
+  public List<ProductView> listLowStock() {
+    return listViews(
+        ProductViewSql.listLowStock(mappedTables.of(Product.class), lowStockThreshold));
   }
 
-  @Transactional
-  public List<Product> listLowStock() {
-    return Product.<Product>listAll().stream()
-        .filter(p -> currentStock(p.id) < p.targetQuantity / 4.0)
-        .sorted(Comparator.comparingDouble(p -> currentStock(p.id) / p.targetQuantity))
-        .toList();
+  private List<ProductView> listViews(SqlQuery query) {
+    List<Object[]> rows =
+        readSessions.read(session -> ProductViewSql.create(session, query).getResultList());
+    return rows.stream().map(ProductViewSql::toView).toList();
   }
 }
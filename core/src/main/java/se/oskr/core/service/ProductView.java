@@ -0,0 +1,17 @@
+package se.oskr.core.service;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import se.oskr.core.domain.Category;
+import se.oskr.core.domain.Unit;
+
+/** Read-only product as returned by listing and lookup queries. */
+@RegisterForReflection
+public record ProductView(
+    long id,
+    String name,
+    Category category,
+    Unit unit,
+    double targetQuantity,
+    double currentStock,
+    String notes,
+    long version) {}
@@ -0,0 +1,92 @@
+package se.oskr.core.service;
+
+import io.vertx.mutiny.sqlclient.Row;
+import java.util.List;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.query.NativeQuery;
+import se.oskr.core.domain.Category;
+import se.oskr.core.domain.Unit;
+import se.oskr.core.service.MappedTables.MappedTable;
+
+/**
+ * The {@link ProductView} projection and the product listings over it, shared by {@link
+ * ProductService} and {@link ReactiveProductService}.
+ */
+final class ProductViewSql {
+
+  private record Column(String alias, Class<?> type) {}
+
+  /** The columns {@link #SELECTION} returns, in order, and the type each is read as. */
+  private static final List<Column> COLUMNS =
+      List.of(
+          new Column("id", Long.class),
+          new Column("name", String.class),
+          new Column("category", String.class),
+          new Column("unit", String.class),
+          new Column("targetquantity", Double.class),
+          new Column("currentstock", Double.class),
+          new Column("notes", String.class),
+          new Column("version", Long.class));
+
+  private static final String SELECTION =
+      """
+      {id} AS id, {name} AS name, {category} AS category, {unit} AS unit,
+          {targetQuantity} AS targetquantity, {currentStock} AS currentstock, {notes} AS notes,
+          {version} AS version""";
+
+  private ProductViewSql() {}
+
+  /**
+   * Up to {@code limit} products of {@code table}, the {@code Product} table, ordered by id,
+   * starting after {@code afterId} (or from the first product if it is {@code null}).
+   */
+  static SqlQuery list(MappedTable table, Category category, Long afterId, int limit) {
+    SqlQuery query = SqlQuery.select(table, SELECTION);
+    if (category != null) {
+      query.where("{category} = ?", category.name());
+    }
+    if (afterId != null) {
+      query.where("{id} > ?", afterId);
+    }
+    return query.orderBy("{id}").limit(limit);
+  }
+
+  /**
+   * Products whose current stock is below {@code threshold} (a fraction of the target quantity),
+   * ordered by stock ratio ascending.
+   */
+  static SqlQuery listLowStock(MappedTable table, double threshold) {
+    return SqlQuery.select(table, SELECTION)
+        .where("{currentStock} < {targetQuantity} * ?", threshold)
+        .orderBy("{currentStock} / NULLIF({targetQuantity}, 0), {id}");
+  }
+
+  /** Creates {@code query} in a Hibernate session; map its rows with {@link #toView(Object[])}. */
+  static NativeQuery<Object[]> create(SharedSessionContract session, SqlQuery query) {
+    NativeQuery<Object[]> nativeQuery = query.create(session);
+    for (Column column : COLUMNS) {
+      nativeQuery.addScalar(column.alias(), column.type());
+    }
+    return nativeQuery;
+  }
+
+  static ProductView toView(Row row) {
+    Object[] columns = new Object[COLUMNS.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = row.get(COLUMNS.get(i).type(), i);
+    }
+    return toView(columns);
+  }
+
+  static ProductView toView(Object[] columns) {
+    return new ProductView(
+        (Long) columns[0],
+        (String) columns[1],
+        Category.valueOf((String) columns[2]),
+        Unit.valueOf((String) columns[3]),
+        (Double) columns[4],
+        (Double) columns[5],
+        (String) columns[6],
+        (Long) columns[7]);
+  }
+}
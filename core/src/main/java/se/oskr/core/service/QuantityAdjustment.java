@@ -0,0 +1,4 @@
+package se.oskr.core.service;
+
+/** Relative change to the quantity of the stock entry with id {@code id}. */
+public record QuantityAdjustment(long id, double delta) {}
@@ -0,0 +1,15 @@
+package se.oskr.core.service;
+
+/**
+ * Outcome of one {@link QuantityAdjustment}. {@code entry} is the adjusted entry as stored at the
+ * end of the batch when the adjustment was applied, and {@code null} otherwise.
+ */
+public record QuantityAdjustmentResult(Outcome outcome, StockEntryView entry) {
+
+  public enum Outcome {
+    APPLIED,
+    NOT_FOUND,
+    /** The entry holds less than the quantity to be removed. */
+    INSUFFICIENT_QUANTITY
+  }
+}
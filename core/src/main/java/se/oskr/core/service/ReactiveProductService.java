@@ -0,0 +1,46 @@
+package se.oskr.core.service;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.List;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import se.oskr.core.domain.Category;
+import se.oskr.core.domain.Product;
+
+/**
+ * Non-blocking counterparts of the {@link ProductService} listings, for endpoints that run on the
+ * event loop. They run the same {@link ProductViewSql} queries through the reactive client.
+ */
+@ApplicationScoped
+public class ReactiveProductService {
+
+  @Inject ReactiveReads reactiveReads;
+
+  @Inject MappedTables mappedTables;
+
+  @ConfigProperty(name = "app.stock.low-threshold", defaultValue = "0.25")
+  double lowStockThreshold;
+
+  /** See {@link ProductService#list}. */
+  public Uni<List<ProductView>> list(Category category, Long afterId, int limit) {
+    return reactiveReads.list(
+        ProductViewSql.list(mappedTables.of(Product.class), category, afterId, limit),
+        ProductViewSql::toView);
+  }
+
+  public Uni<Boolean> exists(long id) {
+    return reactiveReads
+        .list(
+            SqlQuery.select(mappedTables.of(Product.class), "1").where("{id} = ?", id),
+            row -> true)
+        .map(rows -> !rows.isEmpty());
+  }
+
+  /** See {@link ProductService#listLowStock}. */
+  public Uni<List<ProductView>> listLowStock() {
+    return reactiveReads.list(
+        ProductViewSql.listLowStock(mappedTables.of(Product.class), lowStockThreshold),
+        ProductViewSql::toView);
+  }
+}
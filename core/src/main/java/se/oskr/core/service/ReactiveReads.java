@@ -0,0 +1,47 @@
+package se.oskr.core.service;
+
+import io.quarkus.arc.InjectableInstance;
+import io.quarkus.reactive.datasource.ReactiveDataSource;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Runs read-only SQL on the reactive PostgreSQL client, so the calling event-loop thread is never
+ * blocked. Like {@link ReadSessions}, queries go to the {@code replica} datasource when it is
+ * configured and may then briefly lag writes.
+ */
+@ApplicationScoped
+class ReactiveReads {
+
+  @Inject Pool primary;
+
+  @Inject
+  @ReactiveDataSource("replica")
+  InjectableInstance<Pool> replica;
+
+  @Inject Event<ReactiveStatementIssued> statementIssued;
+
+  <T> Uni<List<T>> list(SqlQuery query, Function<Row, T> mapper) {
+    List<Pool> replicas = replica.listActive();
+    Pool pool = replicas.isEmpty() ? primary : replicas.get(0);
+    statementIssued.fire(new ReactiveStatementIssued());
+    return pool.preparedQuery(query.sql("$"))
+        .execute(Tuple.from(query.values()))
+        .map(
+            rows -> {
+              List<T> result = new ArrayList<>(rows.size());
+              for (Row row : rows) {
+                result.add(mapper.apply(row));
+              }
+              return result;
+            });
+  }
+}
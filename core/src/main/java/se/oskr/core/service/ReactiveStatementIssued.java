@@ -0,0 +1,7 @@
+package se.oskr.core.service;
+
+/**
+ * Fired by {@link ReactiveReads} for each statement it sends through the reactive client, which
+ * Hibernate's statement inspection does not see.
+ */
+public record ReactiveStatementIssued() {}
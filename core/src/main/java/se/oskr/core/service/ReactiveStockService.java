@@ -0,0 +1,48 @@
+package se.oskr.core.service;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.List;
+import se.oskr.core.domain.ExpiryStatus;
+import se.oskr.core.domain.StockEntry;
+
+/**
+ * Non-blocking counterparts of the {@link StockService} listings, for endpoints that run on the
+ * event loop. They run the same {@link StockEntryViewSql} queries through the reactive client.
+ */
+@ApplicationScoped
+public class ReactiveStockService {
+
+  @Inject ExpiryClassifier expiryClassifier;
+
+  @Inject ReactiveReads reactiveReads;
+
+  @Inject MappedTables mappedTables;
+
+  /** See {@link StockService#listForProduct}. */
+  public Uni<List<StockEntryView>> listForProduct(
+      long productId, ExpiryStatus status, StockCursor after, int limit) {
+    return list(
+        StockEntryViewSql.listForProduct(
+            mappedTables.of(StockEntry.class), expiryClassifier, productId, status, after, limit));
+  }
+
+  /** See {@link StockService#listExpiring}. */
+  public Uni<List<StockEntryView>> listExpiring(int days, StockCursor after, int limit) {
+    return list(
+        StockEntryViewSql.listExpiring(
+            mappedTables.of(StockEntry.class), expiryClassifier, days, after, limit));
+  }
+
+  /** See {@link StockService#listExpired}. */
+  public Uni<List<StockEntryView>> listExpired(StockCursor after, int limit) {
+    return list(
+        StockEntryViewSql.listExpired(
+            mappedTables.of(StockEntry.class), expiryClassifier, after, limit));
+  }
+
+  private Uni<List<StockEntryView>> list(SqlQuery query) {
+    return reactiveReads.list(query, StockEntryViewSql::toView);
+  }
+}
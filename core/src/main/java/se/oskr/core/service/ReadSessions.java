@@ -0,0 +1,84 @@
+package se.oskr.core.service;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.arc.InjectableInstance;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.StatelessSession;
+
+/**
+ * Runs read-only queries. If the {@code replica} datasource is configured, they run in a stateless
+ * session on a replica connection, so polling reads don't load the primary. Otherwise they run in
+ * the current transaction's session, switched to read-only with manual flushing so Hibernate takes
+ * no snapshots and skips flush checks.
+ *
+ * <p>Replica reads run in a read-only transaction of their own, so streamed results are fetched in
+ * batches rather than loaded at once.
+ *
+ * <p>A replica lags the primary, so a read routed to it may not yet see a write that was just
+ * committed.
+ */
+@ApplicationScoped
+class ReadSessions {
+
+  @Inject Session session;
+
+  @Inject SessionFactory sessionFactory;
+
+  @Inject
+  @DataSource("replica")
+  InjectableInstance<AgroalDataSource> replica;
+
+  <T> T read(Function<SharedSessionContract, T> work) {
+    List<AgroalDataSource> replicas = replica.listActive();
+    if (replicas.isEmpty()) {
+      boolean readOnly = session.isDefaultReadOnly();
+      FlushMode flushMode = session.getHibernateFlushMode();
+      session.setDefaultReadOnly(true);
+      session.setHibernateFlushMode(FlushMode.MANUAL);
+      try {
+        return work.apply(session);
+      } finally {
+        session.setDefaultReadOnly(readOnly);
+        session.setHibernateFlushMode(flushMode);
+      }
+    }
+    try (Connection connection = replicas.get(0).getConnection()) {
+      // The replica pool hands out autocommit connections, on which PgJDBC ignores the fetch size
+      // and buffers the whole result. A read-only transaction lets scrolled queries use a cursor.
+      connection.setAutoCommit(false);
+      connection.setReadOnly(true);
+      try (StatelessSession replicaSession =
+          sessionFactory.withStatelessOptions().connection(connection).openStatelessSession()) {
+        return work.apply(replicaSession);
+      } finally {
+        connection.rollback();
+        connection.setReadOnly(false);
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Failed to read from the read replica", e);
+    }
+  }
+
+  /**
+   * Loads an entity by id like {@link #read}. Cacheable entities come from the second-level cache
+   * when it holds them.
+   */
+  <T> T find(Class<T> type, Object id) {
+    return read(
+        session ->
+            session instanceof StatelessSession stateless
+                ? stateless.get(type, id)
+                : ((Session) session).find(type, id));
+  }
+}
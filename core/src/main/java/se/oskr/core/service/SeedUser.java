@@ -0,0 +1,4 @@
+package se.oskr.core.service;
+
+/** An account created and kept up to date from configuration by {@link UserService#seed}. */
+public record SeedUser(String username, String password, String role) {}
@@ -0,0 +1,114 @@
+package se.oskr.core.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.query.NativeQuery;
+import se.oskr.core.service.MappedTables.MappedTable;
+
+/**
+ * SQL over one mapped entity, assembled from constant fragments in which every value is a bound
+ * parameter. Fragments name the entity's attributes in braces, e.g. {@code {expiryDate} < ?}, which
+ * are replaced by their columns from the JPA mapping. They mark each value with {@code ?}, and one
+ * with a different number of markers than values, or with a null value, is refused, so values
+ * never become part of the SQL text. The same query runs on the reactive client ({@link
+ * ReactiveReads}) and in a Hibernate session.
+ */
+final class SqlQuery {
+
+  private static final Pattern ATTRIBUTE = Pattern.compile("\\{(\\w+)}");
+
+  private final MappedTable table;
+
+  private final StringBuilder sql = new StringBuilder();
+
+  private final List<Object> values = new ArrayList<>();
+
+  private boolean filtered;
+
+  private SqlQuery(MappedTable table) {
+    this.table = table;
+  }
+
+  /** Starts {@code SELECT selection FROM} the entity's table. */
+  static SqlQuery select(MappedTable table, String selection, Object... values) {
+    return new SqlQuery(table)
+        .append("SELECT " + selection, values)
+        .append(" FROM " + table.name());
+  }
+
+  /** Adds a condition, combined with earlier ones with {@code AND}. */
+  SqlQuery where(String condition, Object... values) {
+    sql.append(filtered ? " AND " : " WHERE ");
+    filtered = true;
+    return append("(" + condition + ")", values);
+  }
+
+  SqlQuery orderBy(String attributes) {
+    return append(" ORDER BY " + attributes);
+  }
+
+  SqlQuery limit(int limit) {
+    return append(" LIMIT ?", limit);
+  }
+
+  /** The SQL with the n-th marker replaced by {@code prefix} followed by n, counting from 1. */
+  String sql(String prefix) {
+    StringBuilder rendered = new StringBuilder(sql.length() + 2 * values.size());
+    int n = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '?') {
+        rendered.append(prefix).append(++n);
+      } else {
+        rendered.append(c);
+      }
+    }
+    return rendered.toString();
+  }
+
+  List<Object> values() {
+    return Collections.unmodifiableList(values);
+  }
+
+  /**
+   * Creates the query in {@code session} with ordinal parameters. A collection value is expanded,
+   * so it can be used as {@code IN (?)}.
+   */
+  NativeQuery<Object[]> create(SharedSessionContract session) {
+    NativeQuery<Object[]> query = session.createNativeQuery(sql("?"), Object[].class);
+    for (int i = 0; i < values.size(); i++) {
+      if (values.get(i) instanceof Collection<?> list) {
+        query.setParameterList(i + 1, list);
+      } else {
+        query.setParameter(i + 1, values.get(i));
+      }
+    }
+    return query;
+  }
+
+  private SqlQuery append(String fragment, Object... fragmentValues) {
+    long markers = fragment.chars().filter(c -> c == '?').count();
+    if (markers != fragmentValues.length) {
+      throw new IllegalStateException(
+          "Expected " + markers + " values for '" + fragment + "', got " + fragmentValues.length);
+    }
+    for (Object value : fragmentValues) {
+      if (value == null) {
+        throw new IllegalStateException("Null value for '" + fragment + "'");
+      }
+      values.add(value);
+    }
+    Matcher attributes = ATTRIBUTE.matcher(fragment);
+    while (attributes.find()) {
+      attributes.appendReplacement(
+          sql, Matcher.quoteReplacement(table.column(attributes.group(1))));
+    }
+    attributes.appendTail(sql);
+    return this;
+  }
+}
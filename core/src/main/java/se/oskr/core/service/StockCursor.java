@@ -0,0 +1,9 @@
+package se.oskr.core.service;
+
+import java.time.LocalDate;
+
+/**
+ * Position of the last stock entry on a page, for keyset pagination over {@code (expiryDate, id)}.
+ * The next page starts at the first entry ordered after it.
+ */
+public record StockCursor(LocalDate expiryDate, long id) {}
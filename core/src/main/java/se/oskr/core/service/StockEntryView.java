@@ -0,0 +1,19 @@
+package se.oskr.core.service;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import java.time.LocalDate;
+import se.oskr.core.domain.ExpiryStatus;
+
+/** Read-only stock entry as returned by listing queries, with the expiry status computed in SQL. */
+@RegisterForReflection
+public record StockEntryView(
+    long id,
+    long productId,
+    double quantity,
+    String subType,
+    LocalDate purchasedDate,
+    LocalDate expiryDate,
+    String location,
+    String notes,
+    long version,
+    ExpiryStatus expiryStatus) {}
@@ -0,0 +1,148 @@
+package se.oskr.core.service;
+
+import io.vertx.mutiny.sqlclient.Row;
+import java.time.LocalDate;
+import java.util.List;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.query.NativeQuery;
+import se.oskr.core.domain.ExpiryStatus;
+import se.oskr.core.service.MappedTables.MappedTable;
+
+/**
+ * The {@link StockEntryView} projection and the stock listings over it, shared by {@link
+ * StockService} and {@link ReactiveStockService}. The expiry status is computed by the database
+ * from the date boundaries {@link ExpiryClassifier} uses.
+ */
+final class StockEntryViewSql {
+
+  private record Column(String alias, Class<?> type) {}
+
+  /** The columns {@link #SELECTION} returns, in order, and the type each is read as. */
+  private static final List<Column> COLUMNS =
+      List.of(
+          new Column("id", Long.class),
+          new Column("product_id", Long.class),
+          new Column("quantity", Double.class),
+          new Column("subtype", String.class),
+          new Column("purchaseddate", LocalDate.class),
+          new Column("expirydate", LocalDate.class),
+          new Column("location", String.class),
+          new Column("notes", String.class),
+          new Column("version", Long.class),
+          new Column("expirystatus", String.class));
+
+  private static final String SELECTION =
+      """
+      {id} AS id, {product} AS product_id, {quantity} AS quantity, {subType} AS subtype,
+          {purchasedDate} AS purchaseddate, {expiryDate} AS expirydate, {location} AS location,
+          {notes} AS notes, {version} AS version,
+          CASE
+              WHEN {expiryDate} < ? THEN 'EXPIRED'
+              WHEN {expiryDate} <= ? THEN 'APPROACHING'
+          END AS expirystatus""";
+
+  private StockEntryViewSql() {}
+
+  /** Selects all entries of {@code table}, the {@code StockEntry} table. */
+  static SqlQuery select(MappedTable table, ExpiryClassifier expiryClassifier) {
+    return SqlQuery.select(
+        table, SELECTION, expiryClassifier.today(), expiryClassifier.approachingUntil());
+  }
+
+  /**
+   * Up to {@code limit} of the product's stock entries ordered by expiry date (entries without one
+   * last), starting after {@code after} (or from the first entry if it is {@code null}). With a
+   * {@code status}, only entries currently in that expiry state are returned.
+   */
+  static SqlQuery listForProduct(
+      MappedTable table,
+      ExpiryClassifier expiryClassifier,
+      long productId,
+      ExpiryStatus status,
+      StockCursor after,
+      int limit) {
+    LocalDate today = expiryClassifier.today();
+    SqlQuery query = select(table, expiryClassifier).where("{product} = ?", productId);
+    if (status == ExpiryStatus.EXPIRED) {
+      query.where("{expiryDate} < ?", today);
+    } else if (status == ExpiryStatus.APPROACHING) {
+      query.where(
+          "{expiryDate} >= ? AND {expiryDate} <= ?", today, expiryClassifier.approachingUntil());
+    }
+    if (after != null) {
+      if (after.expiryDate() != null) {
+        query.where(
+            "({expiryDate}, {id}) > (?, ?) OR {expiryDate} IS NULL",
+            after.expiryDate(),
+            after.id());
+      } else {
+        query.where("{expiryDate} IS NULL AND {id} > ?", after.id());
+      }
+    }
+    return query.orderBy("{expiryDate} ASC NULLS LAST, {id}").limit(limit);
+  }
+
+  /** Entries expiring within {@code days} from today, by expiry date. */
+  static SqlQuery listExpiring(
+      MappedTable table,
+      ExpiryClassifier expiryClassifier,
+      int days,
+      StockCursor after,
+      int limit) {
+    LocalDate today = expiryClassifier.today();
+    return byExpiry(
+        select(table, expiryClassifier)
+            .where("{expiryDate} >= ? AND {expiryDate} <= ?", today, today.plusDays(days)),
+        after,
+        limit);
+  }
+
+  /** Entries that have expired, by expiry date. */
+  static SqlQuery listExpired(
+      MappedTable table, ExpiryClassifier expiryClassifier, StockCursor after, int limit) {
+    return byExpiry(
+        select(table, expiryClassifier).where("{expiryDate} < ?", expiryClassifier.today()),
+        after,
+        limit);
+  }
+
+  /** Keyset page over entries matching {@code query}, which must exclude null expiry dates. */
+  private static SqlQuery byExpiry(SqlQuery query, StockCursor after, int limit) {
+    if (after != null) {
+      query.where("({expiryDate}, {id}) > (?, ?)", after.expiryDate(), after.id());
+    }
+    return query.orderBy("{expiryDate} ASC, {id}").limit(limit);
+  }
+
+  /** Creates {@code query} in a Hibernate session; map its rows with {@link #toView(Object[])}. */
+  static NativeQuery<Object[]> create(SharedSessionContract session, SqlQuery query) {
+    NativeQuery<Object[]> nativeQuery = query.create(session);
+    for (Column column : COLUMNS) {
+      nativeQuery.addScalar(column.alias(), column.type());
+    }
+    return nativeQuery;
+  }
+
+  static StockEntryView toView(Row row) {
+    Object[] columns = new Object[COLUMNS.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = row.get(COLUMNS.get(i).type(), i);
+    }
+    return toView(columns);
+  }
+
+  static StockEntryView toView(Object[] columns) {
+    String status = (String) columns[9];
+    return new StockEntryView(
+        (Long) columns[0],
+        (Long) columns[1],
+        (Double) columns[2],
+        (String) columns[3],
+        (LocalDate) columns[4],
+        (LocalDate) columns[5],
+        (String) columns[6],
+        (String) columns[7],
+        (Long) columns[8],
+        status != null ? ExpiryStatus.valueOf(status) : null);
+  }
+}
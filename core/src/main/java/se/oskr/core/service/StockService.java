@@ -1,19 +1,76 @@
 package se.oskr.core.service;
 
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+import io.quarkus.narayana.jta.runtime.TransactionConfiguration;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.hibernate.Session;
+import se.oskr.core.domain.ExpiryStatus;
 import se.oskr.core.domain.Product;
 import se.oskr.core.domain.StockEntry;
+import se.oskr.core.service.QuantityAdjustmentResult.Outcome;
 
 @ApplicationScoped
 public class StockService {
 
+  private static final int EXPORT_FETCH_SIZE = 500;
+
+  @Inject ExpiryClassifier expiryClassifier;
+
+  @Inject ReadSessions readSessions;
+
+  @Inject InventoryRevisions inventoryRevisions;
+
+  @Inject MappedTables mappedTables;
+
+  /**
+   * Returns up to {@code limit} of the product's stock entries ordered by expiry date (entries
+   * without one last), starting after {@code after} (or from the first entry if it is {@code
+   * null}). With a {@code status}, only entries currently in that expiry state are returned.
+   */
+  @Transactional
+  public List<StockEntryView> listForProduct(
+      long productId, ExpiryStatus status, StockCursor after, int limit) {
+    return listViews(
+        StockEntryViewSql.listForProduct(
+            mappedTables.of(StockEntry.class), expiryClassifier, productId, status, after, limit));
+  }
+
+  /**
+   * Passes every stock entry, ordered by id, to {@code consumer} while scrolling through the result
+   * set, so memory use does not grow with the inventory. The transaction stays open while the
+   * caller writes each entry to the client, so it gets {@code app.stock.export-timeout} seconds
+   * (default one hour) instead of the default transaction timeout.
+   */
   @Transactional
-  public List<StockEntry> listForProduct(long productId) {
-    return StockEntry.list("product.id = ?1 ORDER BY expiryDate ASC NULLS LAST", productId);
+  @TransactionConfiguration(timeout = 3600, timeoutFromConfigProperty = "app.stock.export-timeout")
+  public void forEach(Consumer<StockEntryView> consumer) {
+    readSessions.read(
+        session -> {
+          try (Stream<Object[]> rows =
+              StockEntryViewSql.create(session, select().orderBy("{id}"))
+                  .setFetchSize(EXPORT_FETCH_SIZE)
+                  .getResultStream()) {
+            rows.map(StockEntryViewSql::toView).forEach(consumer);
+          }
+          return null;
+        });
   }
 
   @Transactional
@@ -25,69 +82,253 @@ public class StockService {
       LocalDate expiryDate,
       String location,
       String notes) {
+    NewStockEntry fields =
+        new NewStockEntry(productId, quantity, subType, purchasedDate, expiryDate, location, notes);
     return Product.<Product>findByIdOptional(productId)
         .map(
             product -> {
-              StockEntry entry = new StockEntry();
-              entry.product = product;
-              entry.quantity = quantity;
-              entry.subType = subType;
-              entry.purchasedDate = purchasedDate;
-              entry.expiryDate = expiryDate;
-              entry.location = location;
-              entry.notes = notes;
-              entry.persist();
+              StockEntry entry = persistEntry(product, fields);
+              adjustCurrentStock(productId, quantity);
+              inventoryRevisions.increment();
               return entry;
             });
   }
 
+  /**
+   * Creates all {@code entries} in one transaction, loading their products with a single query. The
+   * inserts are sent in JDBC batches of {@code quarkus.hibernate-orm.jdbc.statement-batch-size}
+   * when the transaction commits, and each product's total is adjusted once.
+   *
+   * @return the created entry at the index of each of {@code entries}, or empty where the product
+   *     does not exist
+   */
   @Transactional
-  public Optional<StockEntry> updateQuantity(long id, double quantity) {
-    return StockEntry.<StockEntry>findByIdOptional(id)
+  public List<Optional<StockEntry>> createAll(List<NewStockEntry> entries) {
+    if (entries.isEmpty()) {
+      return List.of();
+    }
+    Set<Long> productIds = entries.stream().map(NewStockEntry::productId).collect(toSet());
+    Map<Long, Product> products =
+        Product.<Product>list("id IN ?1", productIds).stream()
+            .collect(toMap(p -> p.id, Function.identity()));
+    // Products are locked in id order, like in adjustQuantities, so concurrent writers can't
+    // deadlock
+    Map<Long, Double> deltas = new TreeMap<>();
+    List<Optional<StockEntry>> created = new ArrayList<>(entries.size());
+    for (NewStockEntry fields : entries) {
+      Product product = products.get(fields.productId());
+      if (product == null) {
+        created.add(Optional.empty());
+        continue;
+      }
+      created.add(Optional.of(persistEntry(product, fields)));
+      deltas.merge(product.id, fields.quantity(), Double::sum);
+    }
+    deltas.forEach(StockService::adjustCurrentStock);
+    if (!deltas.isEmpty()) {
+      inventoryRevisions.increment();
+    }
+    return created;
+  }
+
+  /**
+   * Sets the entry's quantity. With an {@code expectedVersion}, throws {@link
+   * jakarta.persistence.OptimisticLockException} if the entry has a different version, including
+   * when it is changed concurrently before this update is flushed. Without one, the entry is locked
+   * and the change always applies.
+   */
+  @Transactional
+  public Optional<StockEntry> updateQuantity(long id, Long expectedVersion, double quantity) {
+    return StockEntry.<StockEntry>findByIdOptional(id, Versions.lockMode(expectedVersion))
         .map(
             entry -> {
+              Versions.check(entry, entry.version, expectedVersion);
+              double delta = quantity - entry.quantity;
               entry.quantity = quantity;
+              StockEntry.flush();
+              adjustCurrentStock(entry.product.id, delta);
+              inventoryRevisions.increment();
               return entry;
             });
   }
 
+  /**
+   * Adds each adjustment's delta to its entry's quantity, in order and in one transaction. Every
+   * change is a single {@code UPDATE ... SET quantity = quantity + :delta} that only matches while
+   * the result stays non-negative, so concurrent adjustments of the same entry are all applied
+   * instead of overwriting each other. When it matches nothing, the entry is looked up again, so an
+   * entry deleted concurrently is reported as not found rather than as insufficient.
+   *
+   * @return the result of each of {@code adjustments}, at its index
+   */
+  @Transactional
+  public List<QuantityAdjustmentResult> adjustQuantities(List<QuantityAdjustment> adjustments) {
+    if (adjustments.isEmpty()) {
+      return List.of();
+    }
+    Set<Long> ids = adjustments.stream().map(QuantityAdjustment::id).collect(toSet());
+    Map<Long, Long> productIds =
+        StockEntry.getSession()
+            .createSelectionQuery(
+                "SELECT s.id, s.product.id FROM StockEntry s WHERE s.id IN :ids", Object[].class)
+            .setParameter("ids", ids)
+            .getResultStream()
+            .collect(toMap(row -> (Long) row[0], row -> (Long) row[1]));
+    // Rows are locked in id order, so batches touching the same entries can't deadlock. The sort is
+    // stable, keeping the request order of adjustments to the same entry.
+    List<Integer> order =
+        IntStream.range(0, adjustments.size())
+            .boxed()
+            .sorted(Comparator.comparingLong(i -> adjustments.get(i).id()))
+            .toList();
+    Outcome[] outcomes = new Outcome[adjustments.size()];
+    Map<Long, Double> deltas = new TreeMap<>();
+    for (int i : order) {
+      QuantityAdjustment adjustment = adjustments.get(i);
+      Long productId = productIds.get(adjustment.id());
+      if (productId == null) {
+        outcomes[i] = Outcome.NOT_FOUND;
+      } else if (StockEntry.getSession()
+              .createMutationQuery(
+                  "UPDATE VERSIONED StockEntry SET quantity = quantity + :delta"
+                      + " WHERE id = :id AND quantity + :delta >= 0")
+              .setParameter("delta", adjustment.delta())
+              .setParameter("id", adjustment.id())
+              .executeUpdate()
+          == 0) {
+        // The entry may have been deleted since the product ids were read
+        outcomes[i] =
+            StockEntry.count("id", adjustment.id()) == 0
+                ? Outcome.NOT_FOUND
+                : Outcome.INSUFFICIENT_QUANTITY;
+      } else {
+        outcomes[i] = Outcome.APPLIED;
+        deltas.merge(productId, adjustment.delta(), Double::sum);
+      }
+    }
+    deltas.forEach(StockService::adjustCurrentStock);
+    Map<Long, StockEntryView> adjusted =
+        StockEntryViewSql.create(StockEntry.getSession(), select().where("{id} IN (?)", ids))
+            .getResultStream()
+            .map(StockEntryViewSql::toView)
+            .collect(toMap(StockEntryView::id, Function.identity()));
+    List<QuantityAdjustmentResult> results = new ArrayList<>(adjustments.size());
+    for (int i = 0; i < adjustments.size(); i++) {
+      results.add(
+          new QuantityAdjustmentResult(
+              outcomes[i],
+              outcomes[i] == Outcome.APPLIED ? adjusted.get(adjustments.get(i).id()) : null));
+    }
+    if (!deltas.isEmpty()) {
+      inventoryRevisions.increment();
+    }
+    return results;
+  }
+
+  /** Replaces the entry's fields, checking {@code expectedVersion} like {@link #updateQuantity}. */
   @Transactional
   public Optional<StockEntry> update(
       long id,
+      Long expectedVersion,
       double quantity,
       String subType,
       LocalDate purchasedDate,
       LocalDate expiryDate,
       String location,
       String notes) {
-    return StockEntry.<StockEntry>findByIdOptional(id)
+    return StockEntry.<StockEntry>findByIdOptional(id, Versions.lockMode(expectedVersion))
         .map(
             entry -> {
+              Versions.check(entry, entry.version, expectedVersion);
+              double delta = quantity - entry.quantity;
               entry.quantity = quantity;
               entry.subType = subType;
               entry.purchasedDate = purchasedDate;
               entry.expiryDate = expiryDate;
               entry.location = location;
               entry.notes = notes;
+              StockEntry.flush();
+              adjustCurrentStock(entry.product.id, delta);
+              inventoryRevisions.increment();
               return entry;
             });
   }
 
+  /** Deletes the entry, checking {@code expectedVersion} like {@link #updateQuantity}. */
   @Transactional
-  public boolean delete(long id) {
-    return StockEntry.deleteById(id);
+  public boolean delete(long id, Long expectedVersion) {
+    return StockEntry.<StockEntry>findByIdOptional(id, Versions.lockMode(expectedVersion))
+        .map(
+            entry -> {
+              Versions.check(entry, entry.version, expectedVersion);
+              entry.delete();
+              StockEntry.flush();
+              adjustCurrentStock(entry.product.id, -entry.quantity);
+              inventoryRevisions.increment();
+              return true;
+            })
+        .orElse(false);
   }
 
+  private static StockEntry persistEntry(Product product, NewStockEntry fields) {
+    StockEntry entry = new StockEntry();
+    entry.product = product;
+    entry.quantity = fields.quantity();
+    entry.subType = fields.subType();
+    entry.purchasedDate = fields.purchasedDate();
+    entry.expiryDate = fields.expiryDate();
+    entry.location = fields.location();
+    entry.notes = fields.notes();
+    entry.persist();
+    return entry;
+  }
+
+  /**
+   * Applies a relative change to the product's stored total. The product is re-read under a row
+   * lock, so concurrent stock changes to the same product queue instead of overwriting each other.
+   * The change goes through the entity, which increments the product's version because its
+   * representation changes, and invalidates only this product's second-level cache entry. Paths
+   * that change existing entries flush them before calling this, so entry rows are always locked
+   * before their product's row. New entries are inserted when the transaction commits, after their
+   * products are locked here, so their foreign key checks never wait for another writer. Paths
+   * changing several products call this in ascending product id order, so concurrent single and
+   * bulk edits can't deadlock.
+   */
+  private static void adjustCurrentStock(long productId, double delta) {
+    if (delta != 0) {
+      Session session = Product.getSession();
+      Product product = session.getReference(Product.class, productId);
+      session.refresh(product, LockModeType.PESSIMISTIC_WRITE);
+      product.currentStock += delta;
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} entries expiring within {@code days} from today, by expiry date,
+   * starting after {@code after} (or from the first entry if it is {@code null}).
+   */
   @Transactional
-  public List<StockEntry> listExpiring(int days) {
-    LocalDate today = LocalDate.now();
-    LocalDate cutoff = today.plusDays(days);
-    return StockEntry.list(
-        "expiryDate >= ?1 AND expiryDate <= ?2 ORDER BY expiryDate ASC", today, cutoff);
+  public List<StockEntryView> listExpiring(int days, StockCursor after, int limit) {
+    return listViews(
+        StockEntryViewSql.listExpiring(
+            mappedTables.of(StockEntry.class), expiryClassifier, days, after, limit));
   }
 
+  /** Like {@link #listExpiring}, but returns entries that have already expired. */
   @Transactional
-  public List<StockEntry> listExpired() {
-    return StockEntry.list("expiryDate < ?1 ORDER BY expiryDate ASC", LocalDate.now());
+  public List<StockEntryView> listExpired(StockCursor after, int limit) {
+    return listViews(
+        StockEntryViewSql.listExpired(
+            mappedTables.of(StockEntry.class), expiryClassifier, after, limit));
+  }
+
+  private SqlQuery select() {
+    return StockEntryViewSql.select(mappedTables.of(StockEntry.class), expiryClassifier);
+  }
+
+  private List<StockEntryView> listViews(SqlQuery query) {
+    List<Object[]> rows =
+        readSessions.read(session -> StockEntryViewSql.create(session, query).getResultList());
+    return rows.stream().map(StockEntryViewSql::toView).toList();
   }
 }
@@ -0,0 +1,76 @@
+package se.oskr.core.service;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import org.jboss.logging.Logger;
+import se.oskr.core.domain.Product;
+import se.oskr.core.domain.StockEntry;
+
+/**
+ * Verifies the stored {@link Product#currentStock} totals against the stock entries and rebuilds
+ * the ones that have drifted. Runs at startup, which also backfills the column on databases that
+ * predate it, and then every {@code app.stock.reconcile-interval}.
+ */
+@ApplicationScoped
+public class StockTotalsReconciler {
+
+  private static final Logger LOG = Logger.getLogger(StockTotalsReconciler.class);
+
+  private static final double TOLERANCE = 1e-6;
+
+  @Inject InventoryRevisions inventoryRevisions;
+
+  @Scheduled(
+      identity = "stock-totals-reconciler",
+      every = "${app.stock.reconcile-interval:1h}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void scheduledReconcile() {
+    int corrected = reconcile();
+    if (corrected > 0) {
+      LOG.warnf("Rebuilt stock totals for %d product(s)", corrected);
+    }
+  }
+
+  /** Returns the number of products whose total had drifted and was rebuilt. */
+  public int reconcile() {
+    List<Long> drifted = QuarkusTransaction.requiringNew().call(StockTotalsReconciler::findDrifted);
+    for (long productId : drifted) {
+      QuarkusTransaction.requiringNew().run(() -> rebuild(productId));
+    }
+    return drifted.size();
+  }
+
+  private static List<Long> findDrifted() {
+    return Product.getEntityManager()
+        .createQuery(
+            "SELECT p.id FROM Product p LEFT JOIN StockEntry s ON s.product = p"
+                + " GROUP BY p.id, p.currentStock"
+                + " HAVING ABS(p.currentStock - COALESCE(SUM(s.quantity), 0)) > :tolerance",
+            Long.class)
+        .setParameter("tolerance", TOLERANCE)
+        .getResultList();
+  }
+
+  /**
+   * Locks the product row before summing, so writers that are mid-transaction either commit first
+   * and are counted, or apply their relative update on top of the rebuilt total afterwards.
+   */
+  private void rebuild(long productId) {
+    Product product = Product.findById(productId, LockModeType.PESSIMISTIC_WRITE);
+    if (product == null) {
+      return;
+    }
+    product.currentStock =
+        StockEntry.getEntityManager()
+            .createQuery(
+                "SELECT COALESCE(SUM(s.quantity), 0.0) FROM StockEntry s WHERE s.product.id = :id",
+                Double.class)
+            .setParameter("id", productId)
+            .getSingleResult();
+    inventoryRevisions.increment();
+  }
+}
@@ -0,0 +1,9 @@
+package se.oskr.core.service;
+
+/** Fired by {@link UserService} when a user is created or its role or password changes. */
+public record UserChanged(String username) {
+
+  public boolean affects(String username) {
+    return this.username.equals(username);
+  }
+}
@@ -1,14 +1,106 @@
 package se.oskr.core.service;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import se.oskr.core.domain.User;
 
 @ApplicationScoped
 public class UserService {
 
+  /** Advisory lock key that serializes seeding across replicas starting at the same time. */
+  private static final long SEED_LOCK = 0x7365656455736572L;
+
+  @Inject Event<UserChanged> userChanged;
+
+  @Inject PasswordHasher passwordHasher;
+
   @Transactional
   public User findByUsername(String username) {
     return User.find("username", username).firstResult();
   }
+
+  /**
+   * Creates the seed users that do not exist yet and corrects their roles. With {@code
+   * checkPasswords} it also re-hashes passwords that no longer match the configured ones, which
+   * costs a BCrypt verification per user. Users that are already up to date are not written.
+   * Returns the number of users created or changed.
+   *
+   * <p>The BCrypt work is done before the seeding lock is taken, so replicas starting together only
+   * wait for each other's comparisons and writes. A user that another replica changed in between
+   * is checked again.
+   */
+  public int seed(List<SeedUser> users, boolean checkPasswords) {
+    int changed = 0;
+    List<SeedUser> pending = users;
+    while (!pending.isEmpty()) {
+      List<SeedPlan> plans = plan(pending, checkPasswords);
+      Applied applied = QuarkusTransaction.requiringNew().call(() -> apply(plans));
+      changed += applied.changed();
+      pending = applied.stale();
+    }
+    return changed;
+  }
+
+  /**
+   * A seed user, the password hash it was checked against ({@code null} if it did not exist) and
+   * the new hash to store, or {@code null} if the password is up to date.
+   */
+  private record SeedPlan(SeedUser seed, String checkedHash, String newHash) {}
+
+  private record Applied(int changed, List<SeedUser> stale) {}
+
+  private List<SeedPlan> plan(List<SeedUser> users, boolean checkPasswords) {
+    List<SeedPlan> plans = new ArrayList<>(users.size());
+    for (SeedUser seed : users) {
+      User user = QuarkusTransaction.requiringNew().call(() -> findByUsername(seed.username()));
+      boolean needsHash =
+          user == null
+              || (checkPasswords && !passwordHasher.matches(seed.password(), user.password));
+      plans.add(
+          new SeedPlan(
+              seed,
+              user != null ? user.password : null,
+              needsHash ? passwordHasher.hash(seed.password()) : null));
+    }
+    return plans;
+  }
+
+  private Applied apply(List<SeedPlan> plans) {
+    User.getSession()
+        .createNativeQuery("SELECT pg_advisory_xact_lock(:key)", Object.class)
+        .setParameter("key", SEED_LOCK)
+        .getSingleResult();
+    int changed = 0;
+    List<SeedUser> stale = new ArrayList<>();
+    for (SeedPlan plan : plans) {
+      SeedUser seed = plan.seed();
+      User user = findByUsername(seed.username());
+      if (!Objects.equals(user != null ? user.password : null, plan.checkedHash())) {
+        // Written by another replica since the check, which has to be repeated outside the lock
+        stale.add(seed);
+        continue;
+      }
+      if (user == null) {
+        User.add(seed.username(), plan.newHash(), seed.role());
+      } else {
+        boolean roleChanged = !user.role.equals(seed.role());
+        if (!roleChanged && plan.newHash() == null) {
+          continue;
+        }
+        user.role = seed.role();
+        if (plan.newHash() != null) {
+          user.password = plan.newHash();
+        }
+      }
+      userChanged.fire(new UserChanged(seed.username()));
+      changed++;
+    }
+    return new Applied(changed, stale);
+  }
 }
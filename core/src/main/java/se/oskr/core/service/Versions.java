@@ -0,0 +1,29 @@
+package se.oskr.core.service;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+
+final class Versions {
+
+  private Versions() {}
+
+  /**
+   * Throws {@link OptimisticLockException} unless {@code expected} is {@code null} (unconditional
+   * change) or equal to {@code actual}.
+   */
+  static void check(Object entity, long actual, Long expected) {
+    if (expected != null && expected != actual) {
+      throw new OptimisticLockException(
+          "Expected version " + expected + " but found " + actual, null, entity);
+    }
+  }
+
+  /**
+   * Lock mode for loading an entity that is about to change. An unconditional change ({@code
+   * expected} is {@code null}) locks the row, so it applies to the latest version instead of
+   * failing on one committed concurrently.
+   */
+  static LockModeType lockMode(Long expected) {
+    return expected == null ? LockModeType.PESSIMISTIC_WRITE : LockModeType.NONE;
+  }
+}
@@ -0,0 +1,41 @@
+package se.oskr;
+
+import io.quarkus.security.AuthenticationFailedException;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ForbiddenException;
+import java.time.ZoneOffset;
+import se.oskr.api.AuthApi;
+import se.oskr.model.AccessToken;
+
+@ApplicationScoped
+public class AuthResource implements AuthApi {
+
+  @Inject SecurityIdentity identity;
+
+  @Inject SessionTokens sessionTokens;
+
+  @Inject CredentialStamps credentialStamps;
+
+  @Override
+  @RolesAllowed({"user", "admin"})
+  public AccessToken createToken() {
+    if (identity.getAttribute(SessionTokens.TOKEN_ATTRIBUTE) != null) {
+      throw new ForbiddenException("Tokens can only be issued for username/password credentials");
+    }
+    String stamp =
+        credentialStamps
+            .current(identity.getPrincipal().getName())
+            .await()
+            .indefinitely()
+            .orElseThrow(AuthenticationFailedException::new);
+    SessionTokens.IssuedToken issued = sessionTokens.issue(identity, stamp);
+    AccessToken dto = new AccessToken();
+    dto.setAccessToken(issued.token());
+    dto.setTokenType("Bearer");
+    dto.setExpiresAt(issued.expiresAt().atOffset(ZoneOffset.UTC));
+    return dto;
+  }
+}
@@ -0,0 +1,18 @@
+package se.oskr;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a list endpoint whose content only changes with the inventory revision, so {@link
+ * ConditionalCollectionFilter} can answer conditional GETs for it before it runs.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConditionalCollection {
+
+  /** Whether the content also depends on today's date, as expiry status does. */
+  boolean dated() default false;
+}
@@ -0,0 +1,35 @@
+package se.oskr;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+/**
+ * Answers If-None-Match and If-Modified-Since on {@link ConditionalCollection} endpoints, on the
+ * I/O thread before the endpoint runs. While the inventory revision held in memory is fresh, an
+ * unchanged poll gets its 304 without a database round trip; otherwise the revision is read through
+ * the reactive client. A changed collection gets the revision's ETag and Last-Modified.
+ */
+public class ConditionalCollectionFilter {
+
+  @Inject EntityTags entityTags;
+
+  @ServerRequestFilter(nonBlocking = true)
+  public Uni<Response> evaluate(ContainerRequestContext request, ResourceInfo resourceInfo) {
+    ConditionalCollection collection =
+        resourceInfo.getResourceMethod() != null
+            ? resourceInfo.getResourceMethod().getAnnotation(ConditionalCollection.class)
+            : null;
+    if (collection == null) {
+      return Uni.createFrom().nullItem();
+    }
+    return entityTags.evaluateCollection(
+        request.getHeaderString(HttpHeaders.IF_NONE_MATCH),
+        request.getHeaderString(HttpHeaders.IF_MODIFIED_SINCE),
+        collection.dated());
+  }
+}
@@ -0,0 +1,91 @@
+package se.oskr;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import se.oskr.core.service.UserChanged;
+
+/**
+ * Remembers successful username/password verifications so that repeated Basic-auth requests skip
+ * the database lookup and the BCrypt check. Entries are keyed by the username and an HMAC of the
+ * credentials under a per-process random key; the plaintext password is never stored. Size, TTL and
+ * metrics are configured under {@code quarkus.cache.caffeine."authenticated-credentials"}.
+ */
+@ApplicationScoped
+public class CredentialCache {
+
+  static final String NAME = "authenticated-credentials";
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  @Inject
+  @CacheName(NAME)
+  Cache cache;
+
+  private final SecretKeySpec key;
+
+  public CredentialCache() {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    key = new SecretKeySpec(secret, ALGORITHM);
+  }
+
+  /**
+   * Returns the cached identity for these credentials, or runs {@code verifier} and caches its
+   * result. Failed verifications throw and are not cached.
+   */
+  public SecurityIdentity get(
+      String username, char[] password, Supplier<SecurityIdentity> verifier) {
+    Key cacheKey = new Key(username, digest(username, password));
+    return cache.get(cacheKey, k -> verifier.get()).await().indefinitely();
+  }
+
+  /**
+   * Returns the cached identity for these credentials without blocking, or empty if there is none
+   * yet (including while another request is still verifying them).
+   */
+  public Optional<SecurityIdentity> getIfPresent(String username, char[] password) {
+    CompletableFuture<SecurityIdentity> cached =
+        cache.as(CaffeineCache.class).getIfPresent(new Key(username, digest(username, password)));
+    if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+      return Optional.empty();
+    }
+    return Optional.of(cached.join());
+  }
+
+  void onUserChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserChanged event) {
+    cache.invalidateIf(k -> event.affects(((Key) k).username())).await().indefinitely();
+  }
+
+  private String digest(String username, char[] password) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      mac.update(username.getBytes(StandardCharsets.UTF_8));
+      mac.update((byte) 0);
+      ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+      mac.update(encoded);
+      return HexFormat.of().formatHex(mac.doFinal());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private record Key(String username, String digest) {}
+}
@@ -0,0 +1,74 @@
+package se.oskr;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import se.oskr.core.domain.User;
+import se.oskr.core.service.UserChanged;
+import se.oskr.core.service.UserService;
+
+/**
+ * Digests of each user's stored password hash and role, which {@link SessionTokens} embeds in the
+ * tokens it issues. A token only stays valid while its stamp matches the user's current one, so
+ * changing the password or role, or removing the user, revokes the tokens issued before. Stamps are
+ * cached; size and TTL are configured under {@code quarkus.cache.caffeine."credential-stamps"}.
+ */
+@ApplicationScoped
+public class CredentialStamps {
+
+  static final String NAME = "credential-stamps";
+
+  private static final int STAMP_BYTES = 16;
+
+  @Inject
+  @CacheName(NAME)
+  Cache cache;
+
+  @Inject UserService userService;
+
+  @Inject @VirtualThreads ExecutorService virtualThreads;
+
+  /**
+   * Returns the user's current stamp, or empty if the user does not exist. A cache miss is looked
+   * up off the calling thread, so this can be called on an I/O thread.
+   */
+  public Uni<Optional<String>> current(String username) {
+    return cache.getAsync(
+        username,
+        key -> Uni.createFrom().item(() -> lookup(username)).runSubscriptionOn(virtualThreads));
+  }
+
+  void onUserChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) UserChanged event) {
+    cache.invalidate(event.username()).await().indefinitely();
+  }
+
+  private Optional<String> lookup(String username) {
+    User user = userService.findByUsername(username);
+    return Optional.ofNullable(user).map(u -> stamp(u.password, u.role));
+  }
+
+  private static String stamp(String passwordHash, String role) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest((passwordHash + "\n" + role).getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(Arrays.copyOf(digest, STAMP_BYTES));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package se.oskr;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import se.oskr.core.domain.ExpiryStatus;
+import se.oskr.core.domain.Product;
+import se.oskr.core.domain.StockEntry;
+import se.oskr.core.service.ExpiryClassifier;
+import se.oskr.core.service.ProductView;
+import se.oskr.core.service.StockEntryView;
+
+/** Maps domain entities to the generated API models. */
+@ApplicationScoped
+public class DtoMapper {
+
+  @Inject ExpiryClassifier expiryClassifier;
+
+  public se.oskr.model.Product toProductDto(Product p) {
+    se.oskr.model.Product dto = new se.oskr.model.Product();
+    dto.setId(p.id);
+    dto.setName(p.name);
+    dto.setCategory(se.oskr.model.Category.valueOf(p.category.name()));
+    dto.setUnit(se.oskr.model.Unit.valueOf(p.unit.name()));
+    dto.setTargetQuantity(p.targetQuantity);
+    dto.setCurrentStock(p.currentStock);
+    dto.setNotes(p.notes);
+    dto.setVersion(p.version);
+    return dto;
+  }
+
+  public se.oskr.model.Product toProductDto(ProductView p) {
+    se.oskr.model.Product dto = new se.oskr.model.Product();
+    dto.setId(p.id());
+    dto.setName(p.name());
+    dto.setCategory(se.oskr.model.Category.valueOf(p.category().name()));
+    dto.setUnit(se.oskr.model.Unit.valueOf(p.unit().name()));
+    dto.setTargetQuantity(p.targetQuantity());
+    dto.setCurrentStock(p.currentStock());
+    dto.setNotes(p.notes());
+    dto.setVersion(p.version());
+    return dto;
+  }
+
+  public se.oskr.model.StockEntry toStockEntryDto(StockEntry e) {
+    se.oskr.model.StockEntry dto = new se.oskr.model.StockEntry();
+    dto.setId(e.id);
+    dto.setProductId(e.product.id);
+    dto.setQuantity(e.quantity);
+    dto.setSubType(e.subType);
+    dto.setPurchasedDate(e.purchasedDate);
+    dto.setExpiryDate(e.expiryDate);
+    dto.setLocation(e.location);
+    dto.setNotes(e.notes);
+    dto.setVersion(e.version);
+    dto.setExpiryStatus(toExpiryStatusDto(expiryClassifier.classify(e.expiryDate)));
+    return dto;
+  }
+
+  public se.oskr.model.StockEntry toStockEntryDto(StockEntryView v) {
+    se.oskr.model.StockEntry dto = new se.oskr.model.StockEntry();
+    dto.setId(v.id());
+    dto.setProductId(v.productId());
+    dto.setQuantity(v.quantity());
+    dto.setSubType(v.subType());
+    dto.setPurchasedDate(v.purchasedDate());
+    dto.setExpiryDate(v.expiryDate());
+    dto.setLocation(v.location());
+    dto.setNotes(v.notes());
+    dto.setVersion(v.version());
+    dto.setExpiryStatus(toExpiryStatusDto(v.expiryStatus()));
+    return dto;
+  }
+
+  private static se.oskr.model.ExpiryStatus toExpiryStatusDto(ExpiryStatus status) {
+    if (status == null) {
+      return null;
+    }
+    return switch (status) {
+      case EXPIRED -> se.oskr.model.ExpiryStatus.EXPIRED;
+      case APPROACHING -> se.oskr.model.ExpiryStatus.APPROACHING;
+    };
+  }
+}
@@ -0,0 +1,169 @@
+package se.oskr;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import se.oskr.core.service.ExpiryClassifier;
+import se.oskr.core.service.InventoryRevisions;
+
+/**
+ * Conditional requests. The ETag of a product or stock entry is its version in quotes. Clients send
+ * it back in {@code If-None-Match} to poll without re-downloading, and in {@code If-Match} so a
+ * change is only applied to the version they have seen. Collections are tagged with the {@link
+ * InventoryRevisions inventory revision} instead, so an unchanged poll is answered before any query
+ * runs.
+ */
+@ApplicationScoped
+public class EntityTags {
+
+  @Inject HttpServerRequest request;
+
+  @Inject InventoryRevisions inventoryRevisions;
+
+  @Inject ExpiryClassifier expiryClassifier;
+
+  @Inject Clock clock;
+
+  /** Sets the response's ETag to the given version. */
+  public void tag(long version) {
+    request.response().putHeader(HttpHeaders.ETAG, format(version));
+  }
+
+  /**
+   * Responds 304 Not Modified if {@code ifNoneMatch} lists the tag of {@code version} (or is {@code
+   * *}); otherwise tags the response with it.
+   */
+  public void evaluateIfNoneMatch(String ifNoneMatch, long version) {
+    String current = format(version);
+    if (matches(ifNoneMatch, current)) {
+      throw new WebApplicationException(
+          Response.notModified().header(HttpHeaders.ETAG, current).build());
+    }
+    request.response().putHeader(HttpHeaders.ETAG, current);
+  }
+
+  /**
+   * Completes with a 304 Not Modified response if products and stock are unchanged since the
+   * client's {@code ifNoneMatch} tag, or, when it sent no tag, if the last change was before the
+   * second of its {@code ifModifiedSince} date. Otherwise sets the ETag and Last-Modified of the
+   * current state on the response, which the endpoint then reads, and completes with {@code null}.
+   * Listings that report expiry status pass {@code dated}, since their content also changes at
+   * midnight. Never blocks, so it can run on an I/O thread; an unchanged poll usually costs no
+   * query.
+   */
+  public Uni<Response> evaluateCollection(
+      String ifNoneMatch, String ifModifiedSince, boolean dated) {
+    HttpServerResponse response = request.response();
+    return inventoryRevisions
+        .currentAsync()
+        .map(
+            revision -> {
+              CollectionTags tags = collectionTags(revision, dated);
+              if (tags.notModified(ifNoneMatch, ifModifiedSince)) {
+                return tags.notModifiedResponse();
+              }
+              response
+                  .putHeader(HttpHeaders.ETAG, tags.etag())
+                  .putHeader(HttpHeaders.LAST_MODIFIED, tags.httpDate())
+                  .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+              return null;
+            });
+  }
+
+  /**
+   * Returns the version an {@code If-Match} header requires, or {@code null} if it is absent or
+   * {@code *}. Only a single strong tag can match, so anything else fails the precondition.
+   */
+  public Long expectedVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.strip().equals("*")) {
+      return null;
+    }
+    String tag = ifMatch.strip();
+    if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+      try {
+        return Long.parseLong(tag.substring(1, tag.length() - 1));
+      } catch (NumberFormatException e) {
+        // fall through: not a tag this server issued
+      }
+    }
+    throw new WebApplicationException(Response.Status.PRECONDITION_FAILED);
+  }
+
+  private CollectionTags collectionTags(InventoryRevisions.Revision revision, boolean dated) {
+    Instant lastModified = revision.changedAt();
+    if (!dated) {
+      return new CollectionTags("\"" + revision.number() + "\"", lastModified);
+    }
+    LocalDate today = expiryClassifier.today();
+    Instant midnight = today.atStartOfDay(clock.getZone()).toInstant();
+    return new CollectionTags(
+        "\"" + revision.number() + "-" + today + "\"",
+        midnight.isAfter(lastModified) ? midnight : lastModified);
+  }
+
+  /** Weak comparison of {@code etag} against an If-None-Match header, which may be absent. */
+  private static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.strip();
+      if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String format(long version) {
+    return "\"" + version + "\"";
+  }
+
+  private record CollectionTags(String etag, Instant lastModified) {
+
+    String httpDate() {
+      return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+          lastModified.truncatedTo(ChronoUnit.SECONDS).atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * If-None-Match takes precedence; invalid If-Modified-Since dates are ignored (RFC 9110). HTTP
+     * dates only have whole seconds, so a date in the second of the last change can't tell whether
+     * the client saw it, and the collection counts as modified.
+     */
+    boolean notModified(String ifNoneMatch, String ifModifiedSince) {
+      if (ifNoneMatch != null) {
+        return matches(ifNoneMatch, etag);
+      }
+      if (ifModifiedSince == null) {
+        return false;
+      }
+      try {
+        return lastModified.isBefore(
+            ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+      } catch (DateTimeParseException e) {
+        return false;
+      }
+    }
+
+    Response notModifiedResponse() {
+      return Response.notModified()
+          .header(HttpHeaders.ETAG, etag)
+          .header(HttpHeaders.LAST_MODIFIED, httpDate())
+          .build();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package se.oskr;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Limits failed password verifications per {@code app.auth.rate-limit.window}, for each client
+ * address and for each username from one address. Only failures count, and only against the client
+ * that caused them, so other clients can't lock an account out by guessing its password. Requests
+ * answered from {@link CredentialCache} and bearer tokens are never limited.
+ */
+@ApplicationScoped
+public class LoginRateLimiter {
+
+  @ConfigProperty(name = "app.auth.rate-limit.window", defaultValue = "1M")
+  Duration window;
+
+  @ConfigProperty(name = "app.auth.rate-limit.attempts-per-username", defaultValue = "10")
+  int attemptsPerUsername;
+
+  @ConfigProperty(name = "app.auth.rate-limit.attempts-per-address", defaultValue = "30")
+  int attemptsPerAddress;
+
+  private final Map<Attempter, Window> usernames = new ConcurrentHashMap<>();
+
+  private final Map<String, Window> addresses = new ConcurrentHashMap<>();
+
+  /**
+   * Returns how long to wait before retrying if the address, or the username from that address, has
+   * used up its failed attempts for the current window. Verifications already in flight are not
+   * counted yet, so a client sending many at once may exceed the limit by that many.
+   */
+  public Optional<Duration> check(String username, String address) {
+    long now = System.nanoTime();
+    long waitNanos = 0;
+    Window byUsername = usernames.get(new Attempter(username, address));
+    if (byUsername != null && byUsername.attempts() >= attemptsPerUsername) {
+      waitNanos = byUsername.remainingNanos(now, window);
+    }
+    Window byAddress = addresses.get(address);
+    if (byAddress != null && byAddress.attempts() >= attemptsPerAddress) {
+      waitNanos = Math.max(waitNanos, byAddress.remainingNanos(now, window));
+    }
+    return waitNanos > 0 ? Optional.of(Duration.ofNanos(waitNanos)) : Optional.empty();
+  }
+
+  /** Counts a failed verification of {@code username} from {@code address}. */
+  public void recordFailure(String username, String address) {
+    long now = System.nanoTime();
+    usernames.compute(new Attempter(username, address), (k, w) -> Window.count(w, now, window));
+    addresses.compute(address, (k, w) -> Window.count(w, now, window));
+  }
+
+  @Scheduled(
+      identity = "login-rate-limiter-cleanup",
+      every = "${app.auth.rate-limit.window:1M}",
+      concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+  void removeExpired() {
+    long now = System.nanoTime();
+    usernames.values().removeIf(w -> w.remainingNanos(now, window) <= 0);
+    addresses.values().removeIf(w -> w.remainingNanos(now, window) <= 0);
+  }
+
+  private record Attempter(String username, String address) {}
+
+  private record Window(long startNanos, int attempts) {
+
+    static Window count(Window current, long now, Duration length) {
+      if (current == null || current.remainingNanos(now, length) <= 0) {
+        return new Window(now, 1);
+      }
+      return new Window(current.startNanos, current.attempts + 1);
+    }
+
+    long remainingNanos(long now, Duration length) {
+      return startNanos + length.toNanos() - now;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package se.oskr;
+
+import io.quarkus.security.AuthenticationException;
+import java.time.Duration;
+
+/**
+ * Authentication was refused without checking the password, because the caller exceeded the login
+ * rate limit or password hashing is saturated. Answered with 429 Too Many Requests by {@link
+ * LoginThrottledHandler}.
+ */
+public class LoginThrottledException extends RuntimeException implements AuthenticationException {
+
+  private final Duration retryAfter;
+
+  public LoginThrottledException(Duration retryAfter) {
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration retryAfter() {
+    return retryAfter;
+  }
+}
@@ -0,0 +1,35 @@
+package se.oskr;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+/**
+ * Answers a {@link LoginThrottledException} with 429 Too Many Requests and a {@code Retry-After}
+ * header. Authentication runs before the request reaches the resources, so JAX-RS exception mappers
+ * never see it.
+ */
+@ApplicationScoped
+public class LoginThrottledHandler {
+
+  void register(@Observes Router router) {
+    router.route().order(Integer.MIN_VALUE).failureHandler(this::handle);
+  }
+
+  private void handle(RoutingContext context) {
+    for (Throwable t = context.failure(); t != null; t = t.getCause()) {
+      if (t instanceof LoginThrottledException throttled && !context.response().ended()) {
+        long seconds = Math.max(1, (throttled.retryAfter().toMillis() + 999) / 1000);
+        context
+            .response()
+            .setStatusCode(429)
+            .putHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+            .end();
+        return;
+      }
+    }
+    context.next();
+  }
+}
@@ -0,0 +1,34 @@
+package se.oskr;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+@Singleton
+public class MetricsConfiguration {
+
+  /**
+   * Publishes latency histogram buckets for the built-in {@code http.server.requests} timer, which
+   * is tagged by method and URI template, so per-operation percentiles can be computed in
+   * Prometheus across replicas.
+   */
+  @Produces
+  @Singleton
+  public MeterFilter httpServerHistograms() {
+    return new MeterFilter() {
+      @Override
+      public DistributionStatisticConfig configure(
+          Meter.Id id, DistributionStatisticConfig config) {
+        if (id.getName().equals("http.server.requests")) {
+          return DistributionStatisticConfig.builder()
+              .percentilesHistogram(true)
+              .build()
+              .merge(config);
+        }
+        return config;
+      }
+    };
+  }
+}
@@ -0,0 +1,27 @@
+package se.oskr;
+
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.inject.Inject;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * A version conflict means the client's If-Match precondition no longer holds. Without If-Match the
+ * change collided with a concurrent one, which is a conflict rather than a failed precondition.
+ */
+@Provider
+public class OptimisticLockExceptionMapper implements ExceptionMapper<OptimisticLockException> {
+
+  @Inject HttpServerRequest request;
+
+  @Override
+  public Response toResponse(OptimisticLockException e) {
+    if (request.getHeader(HttpHeaders.IF_MATCH) == null) {
+      return Response.status(Response.Status.CONFLICT).build();
+    }
+    return Response.status(Response.Status.PRECONDITION_FAILED).build();
+  }
+}
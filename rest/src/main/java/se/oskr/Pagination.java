@@ -0,0 +1,136 @@
+package se.oskr;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.QueryStringEncoder;
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import se.oskr.core.service.StockCursor;
+
+/**
+ * Keyset pagination for the list endpoints. Cursors are opaque to clients: base64url of the last
+ * item's id, or of its expiry date and id for stock entries. The cursor for the next page is sent
+ * in an RFC 8288 {@code Link: <...>; rel="next"} header, which is omitted on the last page.
+ */
+@ApplicationScoped
+public class Pagination {
+
+  static final int DEFAULT_LIMIT = 100;
+
+  static final int MAX_LIMIT = 1000;
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  @Inject HttpServerRequest request;
+
+  /** Resolves the requested page size, capping it at {@value #MAX_LIMIT}. */
+  public int limit(Integer requested) {
+    if (requested == null) {
+      return DEFAULT_LIMIT;
+    }
+    if (requested < 1) {
+      throw new IllegalArgumentException("limit must be at least 1");
+    }
+    return Math.min(requested, MAX_LIMIT);
+  }
+
+  /**
+   * Trims a result fetched with {@code limit + 1} rows to {@code limit} and, if there was an extra
+   * row, links to the page after the last returned item.
+   */
+  public <T> List<T> page(List<T> rows, int limit, Function<T, String> cursorOf) {
+    if (rows.size() <= limit) {
+      return rows;
+    }
+    List<T> page = rows.subList(0, limit);
+    request
+        .response()
+        .putHeader("Link", "<" + nextUri(cursorOf.apply(page.getLast())) + ">; rel=\"next\"");
+    return page;
+  }
+
+  public String idCursor(long id) {
+    return encode(Long.toString(id));
+  }
+
+  public Long parseIdCursor(String cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(decode(cursor));
+    } catch (NumberFormatException e) {
+      throw invalidCursor();
+    }
+  }
+
+  public String stockCursor(LocalDate expiryDate, long id) {
+    return encode((expiryDate != null ? expiryDate.toString() : "") + ":" + id);
+  }
+
+  public StockCursor parseStockCursor(String cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    String value = decode(cursor);
+    int separator = value.indexOf(':');
+    if (separator < 0) {
+      throw invalidCursor();
+    }
+    try {
+      String expiryDate = value.substring(0, separator);
+      return new StockCursor(
+          expiryDate.isEmpty() ? null : LocalDate.parse(expiryDate),
+          Long.parseLong(value.substring(separator + 1)));
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw invalidCursor();
+    }
+  }
+
+  /**
+   * Like {@link #parseStockCursor}, for listings of entries that all have an expiry date, where a
+   * cursor without one cannot have been issued.
+   */
+  public StockCursor parseExpiryCursor(String cursor) {
+    StockCursor after = parseStockCursor(cursor);
+    if (after != null && after.expiryDate() == null) {
+      throw invalidCursor();
+    }
+    return after;
+  }
+
+  private String nextUri(String cursor) {
+    QueryStringDecoder current = new QueryStringDecoder(request.uri());
+    QueryStringEncoder next = new QueryStringEncoder(current.path());
+    current.parameters().entrySet().stream()
+        .filter(parameter -> !parameter.getKey().equals("cursor"))
+        .forEach(
+            parameter -> parameter.getValue().forEach(v -> next.addParam(parameter.getKey(), v)));
+    next.addParam("cursor", cursor);
+    return next.toString();
+  }
+
+  private static String encode(String value) {
+    return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decode(String cursor) {
+    try {
+      return new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw invalidCursor();
+    }
+  }
+
+  private static IllegalArgumentException invalidCursor() {
+    return new IllegalArgumentException("Invalid cursor");
+  }
+}
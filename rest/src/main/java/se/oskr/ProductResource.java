@@ -1,5 +1,8 @@
 package se.oskr;
 
+import io.smallrye.common.annotation.NonBlocking;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -8,10 +11,15 @@ import jakarta.ws.rs.NotFoundException;
 import java.util.List;
 import se.oskr.api.ProductsApi;
 import se.oskr.core.domain.Category;
+import se.oskr.core.domain.ExpiryStatus;
 import se.oskr.core.domain.Product;
 import se.oskr.core.domain.StockEntry;
 import se.oskr.core.domain.Unit;
 import se.oskr.core.service.ProductService;
+import se.oskr.core.service.ProductView;
+import se.oskr.core.service.ReactiveProductService;
+import se.oskr.core.service.ReactiveStockService;
+import se.oskr.core.service.StockCursor;
 import se.oskr.core.service.StockService;
 import se.oskr.model.ProductRequest;
 import se.oskr.model.StockEntryRequest;
@@ -23,15 +31,40 @@ public class ProductResource implements ProductsApi {
 
   @Inject StockService stockService;
 
+  @Inject ReactiveProductService reactiveProductService;
+
+  @Inject ReactiveStockService reactiveStockService;
+
+  @Inject Pagination pagination;
+
+  @Inject DtoMapper dtoMapper;
+
+  @Inject EntityTags entityTags;
+
   @Override
   @RolesAllowed({"user", "admin"})
-  public List<se.oskr.model.Product> listProducts(se.oskr.model.Category category) {
+  @ConditionalCollection
+  @NonBlocking
+  public Uni<List<se.oskr.model.Product>> listProducts(
+      se.oskr.model.Category category,
+      String cursor,
+      Integer limit,
+      String ifNoneMatch,
+      String ifModifiedSince) {
     var coreCategory = category != null ? Category.valueOf(category.name()) : null;
-    return productService.list(coreCategory).stream().map(this::toProductDto).toList();
+    int pageSize = pagination.limit(limit);
+    return reactiveProductService
+        .list(coreCategory, pagination.parseIdCursor(cursor), pageSize + 1)
+        .map(
+            products ->
+                pagination.page(products, pageSize, p -> pagination.idCursor(p.id())).stream()
+                    .map(dtoMapper::toProductDto)
+                    .toList());
   }
 
   @Override
   @RolesAllowed("admin")
+  @RunOnVirtualThread
   public se.oskr.model.Product createProduct(ProductRequest body) {
     var product =
         productService.create(
@@ -40,90 +73,99 @@ public class ProductResource implements ProductsApi {
             Unit.valueOf(body.getUnit().name()),
             body.getTargetQuantity(),
             body.getNotes());
-    return toProductDto(product);
+    entityTags.tag(product.version);
+    return dtoMapper.toProductDto(product);
   }
 
   @Override
   @RolesAllowed({"user", "admin"})
-  public se.oskr.model.Product getProduct(Long id) {
-    return productService.findById(id).map(this::toProductDto).orElseThrow(NotFoundException::new);
+  @RunOnVirtualThread
+  public se.oskr.model.Product getProduct(Long id, String ifNoneMatch) {
+    ProductView product = productService.findById(id).orElseThrow(NotFoundException::new);
+    entityTags.evaluateIfNoneMatch(ifNoneMatch, product.version());
+    return dtoMapper.toProductDto(product);
   }
 
   @Override
   @RolesAllowed("admin")
-  public se.oskr.model.Product updateProduct(Long id, ProductRequest body) {
-    return productService
-        .update(
-            id,
-            body.getName(),
-            Category.valueOf(body.getCategory().name()),
-            Unit.valueOf(body.getUnit().name()),
-            body.getTargetQuantity(),
-            body.getNotes())
-        .map(this::toProductDto)
-        .orElseThrow(NotFoundException::new);
+  @RunOnVirtualThread
+  public se.oskr.model.Product updateProduct(Long id, ProductRequest body, String ifMatch) {
+    Long expectedVersion = entityTags.expectedVersion(ifMatch);
+    Product product =
+        productService
+            .update(
+                id,
+                expectedVersion,
+                body.getName(),
+                Category.valueOf(body.getCategory().name()),
+                Unit.valueOf(body.getUnit().name()),
+                body.getTargetQuantity(),
+                body.getNotes())
+            .orElseThrow(NotFoundException::new);
+    entityTags.tag(product.version);
+    return dtoMapper.toProductDto(product);
   }
 
   @Override
   @RolesAllowed("admin")
-  public void deleteProduct(Long id) {
-    if (!productService.delete(id)) {
+  @RunOnVirtualThread
+  public void deleteProduct(Long id, String ifMatch) {
+    if (!productService.delete(id, entityTags.expectedVersion(ifMatch))) {
       throw new NotFoundException();
     }
   }
 
   @Override
   @RolesAllowed({"user", "admin"})
-  public List<se.oskr.model.StockEntry> listProductStock(Long id) {
-    if (productService.findById(id).isEmpty()) {
-      throw new NotFoundException();
-    }
-    return stockService.listForProduct(id).stream().map(this::toStockEntryDto).toList();
+  @ConditionalCollection(dated = true)
+  @NonBlocking
+  public Uni<List<se.oskr.model.StockEntry>> listProductStock(
+      Long id,
+      se.oskr.model.ExpiryStatus status,
+      String cursor,
+      Integer limit,
+      String ifNoneMatch,
+      String ifModifiedSince) {
+    int pageSize = pagination.limit(limit);
+    var coreStatus = status != null ? ExpiryStatus.valueOf(status.name()) : null;
+    StockCursor after = pagination.parseStockCursor(cursor);
+    return reactiveProductService
+        .exists(id)
+        .chain(
+            exists -> {
+              if (!exists) {
+                throw new NotFoundException();
+              }
+              return reactiveStockService.listForProduct(id, coreStatus, after, pageSize + 1);
+            })
+        .map(
+            entries ->
+                pagination
+                    .page(entries, pageSize, e -> pagination.stockCursor(e.expiryDate(), e.id()))
+                    .stream()
+                    .map(dtoMapper::toStockEntryDto)
+                    .toList());
   }
 
   @Override
   @RolesAllowed("admin")
+  @RunOnVirtualThread
   public se.oskr.model.StockEntry createStockEntry(Long id, StockEntryRequest body) {
     if (body.getExpiryDate() == null) {
       throw new BadRequestException("expiryDate is required");
     }
-    return stockService
-        .create(
-            id,
-            body.getQuantity(),
-            body.getSubType(),
-            body.getPurchasedDate(),
-            body.getExpiryDate(),
-            body.getLocation(),
-            body.getNotes())
-        .map(this::toStockEntryDto)
-        .orElseThrow(NotFoundException::new);
-  }
-
-  private se.oskr.model.Product toProductDto(Product p) {
-    se.oskr.model.Product dto = new se.oskr.model.Product();
-    dto.setId(p.id);
-    dto.setName(p.name);
-    dto.setCategory(se.oskr.model.Category.valueOf(p.category.name()));
-    dto.setUnit(se.oskr.model.Unit.valueOf(p.unit.name()));
-    dto.setTargetQuantity(p.targetQuantity);
-    dto.setCurrentStock(productService.currentStock(p.id));
-    dto.setNotes(p.notes);
-    return dto;
-  }
-
-  private se.oskr.model.StockEntry toStockEntryDto(StockEntry e) {
-    se.oskr.model.StockEntry dto = new se.oskr.model.StockEntry();
-    dto.setId(e.id);
-    dto.setProductId(e.product.id);
-    dto.setQuantity(e.quantity);
-    dto.setSubType(e.subType);
-    dto.setPurchasedDate(e.purchasedDate);
-    dto.setExpiryDate(e.expiryDate);
-    dto.setLocation(e.location);
-    dto.setNotes(e.notes);
-    String status = e.product.category.expiryStatus(e.expiryDate);
-    dto.setExpiryStatus(status != null ? se.oskr.model.ExpiryStatus.fromValue(status) : null);
-    return dto;
+    StockEntry entry =
+        stockService
+            .create(
+                id,
+                body.getQuantity(),
+                body.getSubType(),
+                body.getPurchasedDate(),
+                body.getExpiryDate(),
+                body.getLocation(),
+                body.getNotes())
+            .orElseThrow(NotFoundException::new);
+    entityTags.tag(entry.version);
+    return dtoMapper.toStockEntryDto(entry);
   }
 }
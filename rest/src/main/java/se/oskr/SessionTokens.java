@@ -0,0 +1,147 @@
+package se.oskr;
+
+import io.quarkus.runtime.LaunchMode;
+import io.quarkus.runtime.Startup;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.security.runtime.QuarkusPrincipal;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Issues and verifies short-lived bearer tokens. A token is {@code payload.signature}, both
+ * base64url-encoded, where the payload holds the expiry, roles, {@link CredentialStamps credential
+ * stamp} and username and the signature is an HMAC-SHA256 of the payload under {@code
+ * app.auth.token-secret}. Verifying the signature needs no database access, and every replica
+ * sharing the secret accepts the same tokens. The secret is checked at startup, and production
+ * refuses to start with a placeholder secret.
+ */
+@Startup
+@ApplicationScoped
+public class SessionTokens {
+
+  /** Identity attribute marking identities that were authenticated with a token. */
+  public static final String TOKEN_ATTRIBUTE = "se.oskr.token";
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private static final int MIN_SECRET_BYTES = 32;
+
+  /** Secrets shipped in configuration examples, which must never sign tokens in production. */
+  private static final Set<String> PLACEHOLDER_SECRETS =
+      Set.of(
+          "dev-only-token-secret-change-me-in-prod",
+          "CHANGEME-AT-LEAST-32-BYTES-LONG-SECRET",
+          "test-token-secret-0123456789abcdef");
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final SecretKeySpec key;
+
+  private final Duration ttl;
+
+  private final Clock clock;
+
+  public SessionTokens(
+      @ConfigProperty(name = "app.auth.token-secret") String secret,
+      @ConfigProperty(name = "app.auth.token-ttl", defaultValue = "15M") Duration ttl,
+      Clock clock) {
+    byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+    if (secretBytes.length < MIN_SECRET_BYTES) {
+      throw new IllegalStateException(
+          "app.auth.token-secret must be at least " + MIN_SECRET_BYTES + " bytes");
+    }
+    if (LaunchMode.current() == LaunchMode.NORMAL && PLACEHOLDER_SECRETS.contains(secret)) {
+      throw new IllegalStateException(
+          "app.auth.token-secret is a placeholder; set APP_TOKEN_SECRET to a random secret");
+    }
+    this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  public record IssuedToken(String token, Instant expiresAt) {}
+
+  /** A token with a valid signature and expiry, and the credential stamp it was issued with. */
+  public record VerifiedToken(SecurityIdentity identity, String credentialStamp) {}
+
+  public IssuedToken issue(SecurityIdentity identity, String credentialStamp) {
+    Instant expiresAt = clock.instant().plus(ttl);
+    String payload =
+        expiresAt.getEpochSecond()
+            + "\n"
+            + String.join(",", identity.getRoles())
+            + "\n"
+            + credentialStamp
+            + "\n"
+            + identity.getPrincipal().getName();
+    String encoded = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    return new IssuedToken(encoded + "." + ENCODER.encodeToString(sign(encoded)), expiresAt);
+  }
+
+  /**
+   * Returns the identity carried by a token, or empty if it is malformed, forged or expired. The
+   * caller still has to check the credential stamp.
+   */
+  public Optional<VerifiedToken> verify(String token) {
+    int dot = token.indexOf('.');
+    if (dot < 0) {
+      return Optional.empty();
+    }
+    String encoded = token.substring(0, dot);
+    String[] fields;
+    try {
+      byte[] signature = DECODER.decode(token.substring(dot + 1));
+      if (!MessageDigest.isEqual(signature, sign(encoded))) {
+        return Optional.empty();
+      }
+      fields = new String(DECODER.decode(encoded), StandardCharsets.UTF_8).split("\n", 4);
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    if (fields.length != 4 || isExpired(fields[0])) {
+      return Optional.empty();
+    }
+    QuarkusSecurityIdentity.Builder identity =
+        QuarkusSecurityIdentity.builder()
+            .setPrincipal(new QuarkusPrincipal(fields[3]))
+            .addAttribute(TOKEN_ATTRIBUTE, true);
+    if (!fields[1].isEmpty()) {
+      identity.addRoles(new HashSet<>(Arrays.asList(fields[1].split(","))));
+    }
+    return Optional.of(new VerifiedToken(identity.build(), fields[2]));
+  }
+
+  private boolean isExpired(String expiresAt) {
+    try {
+      return clock.instant().getEpochSecond() >= Long.parseLong(expiresAt);
+    } catch (NumberFormatException e) {
+      return true;
+    }
+  }
+
+  private byte[] sign(String encodedPayload) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
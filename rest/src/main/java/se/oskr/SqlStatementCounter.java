@@ -0,0 +1,18 @@
+package se.oskr;
+
+import jakarta.enterprise.context.RequestScoped;
+
+/** Number of SQL statements issued while handling the current request. */
+@RequestScoped
+public class SqlStatementCounter {
+
+  private int count;
+
+  void increment() {
+    count++;
+  }
+
+  int count() {
+    return count;
+  }
+}
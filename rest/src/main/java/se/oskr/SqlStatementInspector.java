@@ -0,0 +1,38 @@
+package se.oskr;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import se.oskr.core.service.ReactiveStatementIssued;
+
+/**
+ * Counts every statement Hibernate prepares, and every one sent through the reactive client,
+ * against the current request, so that requests issuing one query per row show up in the
+ * per-operation statement histogram. Statements outside a request (startup, scheduled jobs) are not
+ * counted.
+ */
+@ApplicationScoped
+@PersistenceUnitExtension
+public class SqlStatementInspector implements StatementInspector {
+
+  @Inject SqlStatementCounter counter;
+
+  @Override
+  public String inspect(String sql) {
+    count();
+    return sql;
+  }
+
+  void onReactiveStatement(@Observes ReactiveStatementIssued event) {
+    count();
+  }
+
+  private void count() {
+    if (Arc.container().requestContext().isActive()) {
+      counter.increment();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package se.oskr;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+
+/**
+ * Records the number of SQL statements each API operation issued, through Hibernate or the reactive
+ * client, tagged by operation name. Requests rejected by authentication or authorization never
+ * reach the operation and are skipped.
+ */
+@Provider
+public class SqlStatementMetricsFilter implements ContainerResponseFilter {
+
+  static final String METRIC = "http.server.sql.statements";
+
+  @Inject MeterRegistry registry;
+
+  @Inject SqlStatementCounter counter;
+
+  @Context ResourceInfo resourceInfo;
+
+  @Override
+  public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+    Method method = resourceInfo.getResourceMethod();
+    int status = response.getStatus();
+    if (method == null
+        || status == Response.Status.UNAUTHORIZED.getStatusCode()
+        || status == Response.Status.FORBIDDEN.getStatusCode()) {
+      return;
+    }
+    DistributionSummary.builder(METRIC)
+        .description("SQL statements issued while handling a request")
+        .baseUnit("statements")
+        .tag("operation", method.getName())
+        .publishPercentileHistogram()
+        .register(registry)
+        .record(counter.count());
+  }
+}
@@ -1,58 +1,217 @@
 package se.oskr;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.smallrye.common.annotation.NonBlocking;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import se.oskr.api.StockApi;
-import se.oskr.core.domain.Product;
 import se.oskr.core.domain.StockEntry;
-import se.oskr.core.service.ProductService;
+import se.oskr.core.service.NewStockEntry;
+import se.oskr.core.service.QuantityAdjustment;
+import se.oskr.core.service.QuantityAdjustmentResult;
+import se.oskr.core.service.ReactiveProductService;
+import se.oskr.core.service.ReactiveStockService;
+import se.oskr.core.service.StockEntryView;
 import se.oskr.core.service.StockService;
+import se.oskr.model.StockAdjustment;
+import se.oskr.model.StockAdjustmentResult;
+import se.oskr.model.StockEntryBatchItem;
+import se.oskr.model.StockEntryBatchResult;
 import se.oskr.model.StockEntryPatch;
 import se.oskr.model.StockEntryRequest;
 
 @ApplicationScoped
 public class StockResource implements StockApi {
 
+  static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+  static final int MAX_BATCH_SIZE = 1000;
+
   @Inject StockService stockService;
 
-  @Inject ProductService productService;
+  @Inject ReactiveStockService reactiveStockService;
+
+  @Inject ReactiveProductService reactiveProductService;
+
+  @Inject Pagination pagination;
+
+  @Inject DtoMapper dtoMapper;
+
+  @Inject ObjectMapper objectMapper;
+
+  @Inject EntityTags entityTags;
+
+  /**
+   * Streams every stock entry as newline-delimited JSON, writing each one as it is read from the
+   * database instead of building the whole list first.
+   */
+  @GET
+  @Produces(APPLICATION_NDJSON)
+  @RolesAllowed({"user", "admin"})
+  @RunOnVirtualThread
+  public StreamingOutput exportStock() {
+    ObjectWriter writer = objectMapper.writerFor(se.oskr.model.StockEntry.class);
+    return output ->
+        stockService.forEach(
+            entry -> {
+              try {
+                output.write(writer.writeValueAsBytes(dtoMapper.toStockEntryDto(entry)));
+                output.write('\n');
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  @Override
+  @RolesAllowed("admin")
+  @RunOnVirtualThread
+  public List<StockEntryBatchResult> createStockEntries(List<StockEntryBatchItem> items) {
+    if (items == null || items.size() > MAX_BATCH_SIZE) {
+      throw new BadRequestException("Expected between 0 and " + MAX_BATCH_SIZE + " items");
+    }
+    List<StockEntryBatchResult> results = new ArrayList<>(items.size());
+    List<NewStockEntry> valid = new ArrayList<>(items.size());
+    for (StockEntryBatchItem item : items) {
+      if (item == null
+          || item.getProductId() == null
+          || item.getQuantity() == null
+          || item.getExpiryDate() == null) {
+        results.add(
+            new StockEntryBatchResult()
+                .status(StockEntryBatchResult.StatusEnum.INVALID)
+                .error("productId, quantity and expiryDate are required"));
+      } else {
+        results.add(null);
+        valid.add(
+            new NewStockEntry(
+                item.getProductId(),
+                item.getQuantity(),
+                item.getSubType(),
+                item.getPurchasedDate(),
+                item.getExpiryDate(),
+                item.getLocation(),
+                item.getNotes()));
+      }
+    }
+    Iterator<Optional<StockEntry>> created = stockService.createAll(valid).iterator();
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) == null) {
+        results.set(
+            i,
+            created
+                .next()
+                .map(
+                    entry ->
+                        new StockEntryBatchResult()
+                            .status(StockEntryBatchResult.StatusEnum.CREATED)
+                            .entry(dtoMapper.toStockEntryDto(entry)))
+                .orElseGet(
+                    () ->
+                        new StockEntryBatchResult()
+                            .status(StockEntryBatchResult.StatusEnum.PRODUCT_NOT_FOUND)
+                            .error("Product not found")));
+      }
+    }
+    return results;
+  }
+
+  @Override
+  @RolesAllowed("admin")
+  @RunOnVirtualThread
+  public List<StockAdjustmentResult> adjustStockEntries(List<StockAdjustment> adjustments) {
+    if (adjustments == null || adjustments.size() > MAX_BATCH_SIZE) {
+      throw new BadRequestException("Expected between 0 and " + MAX_BATCH_SIZE + " adjustments");
+    }
+    List<QuantityAdjustment> valid = new ArrayList<>(adjustments.size());
+    for (StockAdjustment adjustment : adjustments) {
+      if (adjustment != null && adjustment.getId() != null && adjustment.getDelta() != null) {
+        valid.add(new QuantityAdjustment(adjustment.getId(), adjustment.getDelta()));
+      }
+    }
+    Iterator<QuantityAdjustmentResult> applied = stockService.adjustQuantities(valid).iterator();
+    List<StockAdjustmentResult> results = new ArrayList<>(adjustments.size());
+    for (StockAdjustment adjustment : adjustments) {
+      if (adjustment == null || adjustment.getId() == null || adjustment.getDelta() == null) {
+        results.add(new StockAdjustmentResult().status(StockAdjustmentResult.StatusEnum.INVALID));
+      } else {
+        QuantityAdjustmentResult result = applied.next();
+        results.add(
+            new StockAdjustmentResult()
+                .status(StockAdjustmentResult.StatusEnum.valueOf(result.outcome().name()))
+                .entry(result.entry() != null ? dtoMapper.toStockEntryDto(result.entry()) : null));
+      }
+    }
+    return results;
+  }
 
   @Override
   @RolesAllowed({"user", "admin"})
-  public List<se.oskr.model.StockEntry> getExpiredStock() {
-    return stockService.listExpired().stream().map(this::toStockEntryDto).toList();
+  @ConditionalCollection(dated = true)
+  @NonBlocking
+  public Uni<List<se.oskr.model.StockEntry>> getExpiredStock(
+      String cursor, Integer limit, String ifNoneMatch, String ifModifiedSince) {
+    int pageSize = pagination.limit(limit);
+    return reactiveStockService
+        .listExpired(pagination.parseExpiryCursor(cursor), pageSize + 1)
+        .map(entries -> toStockEntryPage(entries, pageSize));
   }
 
   @Override
   @RolesAllowed({"user", "admin"})
-  public List<se.oskr.model.StockEntry> getExpiringStock(Integer days) {
+  @ConditionalCollection(dated = true)
+  @NonBlocking
+  public Uni<List<se.oskr.model.StockEntry>> getExpiringStock(
+      Integer days, String cursor, Integer limit, String ifNoneMatch, String ifModifiedSince) {
     int d = days != null ? days : 30;
-    return stockService.listExpiring(d).stream().map(this::toStockEntryDto).toList();
+    int pageSize = pagination.limit(limit);
+    return reactiveStockService
+        .listExpiring(d, pagination.parseExpiryCursor(cursor), pageSize + 1)
+        .map(entries -> toStockEntryPage(entries, pageSize));
   }
 
   @Override
   @RolesAllowed({"user", "admin"})
-  public List<se.oskr.model.Product> getLowStock() {
-    return productService.listLowStock().stream().map(this::toProductDto).toList();
+  @ConditionalCollection
+  @NonBlocking
+  public Uni<List<se.oskr.model.Product>> getLowStock(String ifNoneMatch, String ifModifiedSince) {
+    return reactiveProductService
+        .listLowStock()
+        .map(products -> products.stream().map(dtoMapper::toProductDto).toList());
   }
 
   @Override
   @RolesAllowed("admin")
-  public se.oskr.model.StockEntry updateStockEntry(Long id, StockEntryPatch body) {
-    return stockService
-        .updateQuantity(id, body.getQuantity())
-        .map(this::toStockEntryDto)
-        .orElseThrow(NotFoundException::new);
+  @RunOnVirtualThread
+  public se.oskr.model.StockEntry updateStockEntry(Long id, StockEntryPatch body, String ifMatch) {
+    StockEntry entry =
+        stockService
+            .updateQuantity(id, entityTags.expectedVersion(ifMatch), body.getQuantity())
+            .orElseThrow(NotFoundException::new);
+    entityTags.tag(entry.version);
+    return dtoMapper.toStockEntryDto(entry);
   }
 
   @PUT
@@ -60,56 +219,45 @@ public class StockResource implements StockApi {
   @Consumes(MediaType.APPLICATION_JSON)
   @Produces(MediaType.APPLICATION_JSON)
   @RolesAllowed("admin")
+  @RunOnVirtualThread
   public se.oskr.model.StockEntry replaceStockEntry(
-      @PathParam("id") Long id, StockEntryRequest body) {
+      @PathParam("id") Long id,
+      StockEntryRequest body,
+      @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
     if (body.getExpiryDate() == null) {
       throw new BadRequestException("expiryDate is required");
     }
-    return stockService
-        .update(
-            id,
-            body.getQuantity(),
-            body.getSubType(),
-            body.getPurchasedDate(),
-            body.getExpiryDate(),
-            body.getLocation(),
-            body.getNotes())
-        .map(this::toStockEntryDto)
-        .orElseThrow(NotFoundException::new);
+    StockEntry entry =
+        stockService
+            .update(
+                id,
+                entityTags.expectedVersion(ifMatch),
+                body.getQuantity(),
+                body.getSubType(),
+                body.getPurchasedDate(),
+                body.getExpiryDate(),
+                body.getLocation(),
+                body.getNotes())
+            .orElseThrow(NotFoundException::new);
+    entityTags.tag(entry.version);
+    return dtoMapper.toStockEntryDto(entry);
   }
 
   @Override
   @RolesAllowed("admin")
-  public void deleteStockEntry(Long id) {
-    if (!stockService.delete(id)) {
+  @RunOnVirtualThread
+  public void deleteStockEntry(Long id, String ifMatch) {
+    if (!stockService.delete(id, entityTags.expectedVersion(ifMatch))) {
       throw new NotFoundException();
     }
   }
 
-  private se.oskr.model.StockEntry toStockEntryDto(StockEntry e) {
-    se.oskr.model.StockEntry dto = new se.oskr.model.StockEntry();
-    dto.setId(e.id);
-    dto.setProductId(e.product.id);
-    dto.setQuantity(e.quantity);
-    dto.setSubType(e.subType);
-    dto.setPurchasedDate(e.purchasedDate);
-    dto.setExpiryDate(e.expiryDate);
-    dto.setLocation(e.location);
-    dto.setNotes(e.notes);
-    String status = e.product.category.expiryStatus(e.expiryDate);
-    dto.setExpiryStatus(status != null ? se.oskr.model.ExpiryStatus.fromValue(status) : null);
-    return dto;
-  }
-
-  private se.oskr.model.Product toProductDto(Product p) {
-    se.oskr.model.Product dto = new se.oskr.model.Product();
-    dto.setId(p.id);
-    dto.setName(p.name);
-    dto.setCategory(se.oskr.model.Category.valueOf(p.category.name()));
-    dto.setUnit(se.oskr.model.Unit.valueOf(p.unit.name()));
-    dto.setTargetQuantity(p.targetQuantity);
-    dto.setCurrentStock(productService.currentStock(p.id));
-    dto.setNotes(p.notes);
-    return dto;
+  private List<se.oskr.model.StockEntry> toStockEntryPage(
+      List<StockEntryView> entries, int pageSize) {
+    return pagination
+        .page(entries, pageSize, e -> pagination.stockCursor(e.expiryDate(), e.id()))
+        .stream()
+        .map(dtoMapper::toStockEntryDto)
+        .toList();
   }
 }
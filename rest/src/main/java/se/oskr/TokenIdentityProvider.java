@@ -0,0 +1,47 @@
+package se.oskr;
+
+import io.quarkus.security.AuthenticationFailedException;
+import io.quarkus.security.identity.AuthenticationRequestContext;
+import io.quarkus.security.identity.IdentityProvider;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.quarkus.security.identity.request.TokenAuthenticationRequest;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Authenticates bearer tokens issued by {@link AuthResource}. Verification is a local HMAC check
+ * plus a comparison with the user's current {@link CredentialStamps credential stamp}, which is
+ * usually cached, so unlike {@link UserIdentityProvider} it mostly runs without leaving the I/O
+ * thread.
+ */
+@ApplicationScoped
+public class TokenIdentityProvider implements IdentityProvider<TokenAuthenticationRequest> {
+
+  @Inject SessionTokens sessionTokens;
+
+  @Inject CredentialStamps credentialStamps;
+
+  @Override
+  public Class<TokenAuthenticationRequest> getRequestType() {
+    return TokenAuthenticationRequest.class;
+  }
+
+  @Override
+  public Uni<SecurityIdentity> authenticate(
+      TokenAuthenticationRequest request, AuthenticationRequestContext context) {
+    return sessionTokens
+        .verify(request.getToken().getToken())
+        .map(
+            token ->
+                credentialStamps
+                    .current(token.identity().getPrincipal().getName())
+                    .map(
+                        stamp ->
+                            stamp
+                                .filter(token.credentialStamp()::equals)
+                                .map(matching -> token.identity())
+                                .orElseThrow(AuthenticationFailedException::new)))
+        .orElseGet(() -> Uni.createFrom().failure(new AuthenticationFailedException()));
+  }
+}
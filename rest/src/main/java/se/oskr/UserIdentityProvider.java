@@ -1,6 +1,5 @@
 package se.oskr;
 
-import io.quarkus.elytron.security.common.BcryptUtil;
 import io.quarkus.security.AuthenticationFailedException;
 import io.quarkus.security.identity.AuthenticationRequestContext;
 import io.quarkus.security.identity.IdentityProvider;
@@ -8,40 +7,97 @@ import io.quarkus.security.identity.SecurityIdentity;
 import io.quarkus.security.identity.request.UsernamePasswordAuthenticationRequest;
 import io.quarkus.security.runtime.QuarkusPrincipal;
 import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import io.quarkus.vertx.http.runtime.security.HttpSecurityUtils;
+import io.quarkus.virtual.threads.VirtualThreads;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.RoutingContext;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import se.oskr.core.domain.User;
+import se.oskr.core.service.PasswordHasher;
 import se.oskr.core.service.UserService;
 
 @ApplicationScoped
 public class UserIdentityProvider
     implements IdentityProvider<UsernamePasswordAuthenticationRequest> {
 
+  /** Suggested wait after a login is refused because password hashing is saturated. */
+  private static final Duration SATURATED_RETRY_AFTER = Duration.ofSeconds(1);
+
   @Inject UserService userService;
 
+  @Inject CredentialCache credentialCache;
+
+  @Inject PasswordHasher passwordHasher;
+
+  @Inject LoginRateLimiter loginRateLimiter;
+
+  @Inject @VirtualThreads ExecutorService virtualThreads;
+
   @Override
   public Class<UsernamePasswordAuthenticationRequest> getRequestType() {
     return UsernamePasswordAuthenticationRequest.class;
   }
 
+  /**
+   * Credentials verified recently are answered from {@link CredentialCache} on the I/O thread; only
+   * the database lookup and BCrypt check of a cache miss are moved off it, to a virtual thread when
+   * they are enabled and to a worker thread otherwise. The BCrypt check itself runs on {@link
+   * PasswordHasher}'s pool.
+   */
   @Override
   public Uni<SecurityIdentity> authenticate(
       UsernamePasswordAuthenticationRequest request, AuthenticationRequestContext context) {
-    return context.runBlocking(
-        () -> {
-          User user = userService.findByUsername(request.getUsername());
-          if (user == null
-              || !BcryptUtil.matches(
-                  new String(request.getPassword().getPassword()), user.password)) {
-            throw new AuthenticationFailedException();
-          }
-          return QuarkusSecurityIdentity.builder()
-              .setPrincipal(new QuarkusPrincipal(request.getUsername()))
-              .addRoles(new HashSet<>(Arrays.asList(user.role.split(","))))
-              .build();
-        });
+    String username = request.getUsername();
+    char[] password = request.getPassword().getPassword();
+    String address = clientAddress(request);
+    return credentialCache
+        .getIfPresent(username, password)
+        .map(Uni.createFrom()::item)
+        .orElseGet(
+            () ->
+                Uni.createFrom()
+                    .item(
+                        () ->
+                            credentialCache.get(username, password, () -> verify(request, address)))
+                    .runSubscriptionOn(virtualThreads));
+  }
+
+  private SecurityIdentity verify(UsernamePasswordAuthenticationRequest request, String address) {
+    loginRateLimiter
+        .check(request.getUsername(), address)
+        .ifPresent(
+            retryAfter -> {
+              throw new LoginThrottledException(retryAfter);
+            });
+    User user = userService.findByUsername(request.getUsername());
+    if (user == null || !matches(new String(request.getPassword().getPassword()), user.password)) {
+      loginRateLimiter.recordFailure(request.getUsername(), address);
+      throw new AuthenticationFailedException();
+    }
+    return QuarkusSecurityIdentity.builder()
+        .setPrincipal(new QuarkusPrincipal(request.getUsername()))
+        .addRoles(new HashSet<>(Arrays.asList(user.role.split(","))))
+        .build();
+  }
+
+  private boolean matches(String password, String hash) {
+    try {
+      return passwordHasher.matches(password, hash);
+    } catch (RejectedExecutionException e) {
+      throw new LoginThrottledException(SATURATED_RETRY_AFTER);
+    }
+  }
+
+  private static String clientAddress(UsernamePasswordAuthenticationRequest request) {
+    RoutingContext context = HttpSecurityUtils.getRoutingContextAttribute(request);
+    SocketAddress address = context != null ? context.request().remoteAddress() : null;
+    return address != null ? address.hostAddress() : "unknown";
   }
 }
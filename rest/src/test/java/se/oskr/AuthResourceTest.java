@@ -0,0 +1,168 @@
+package se.oskr;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import se.oskr.core.service.SeedUser;
+import se.oskr.core.service.UserChanged;
+import se.oskr.core.service.UserService;
+
+@QuarkusTest
+class AuthResourceTest {
+
+  @Inject UserService userService;
+
+  @Inject LoginRateLimiter loginRateLimiter;
+
+  @Inject CredentialCache credentialCache;
+
+  @Inject Clock clock;
+
+  private String createToken(String username, String password) {
+    return given()
+        .auth()
+        .basic(username, password)
+        .when()
+        .post("/auth/token")
+        .then()
+        .statusCode(200)
+        .body("tokenType", is("Bearer"))
+        .body("expiresAt", notNullValue())
+        .extract()
+        .jsonPath()
+        .getString("accessToken");
+  }
+
+  @Test
+  void tokenAuthenticatesSubsequentRequests() {
+    String token = createToken("user", "user");
+
+    given().auth().oauth2(token).when().get("/products").then().statusCode(200);
+  }
+
+  @Test
+  void tokenCarriesRoles() {
+    String token = createToken("user", "user");
+
+    given()
+        .auth()
+        .oauth2(token)
+        .contentType(ContentType.JSON)
+        .body(
+            """
+            {"name": "X", "category": "WATER", "unit": "LITERS", "targetQuantity": 1}
+            """)
+        .when()
+        .post("/products")
+        .then()
+        .statusCode(403);
+  }
+
+  @Test
+  void tokenExpiresAfterTheConfiguredTtl() {
+    String expiresAt =
+        given()
+            .auth()
+            .basic("user", "user")
+            .when()
+            .post("/auth/token")
+            .then()
+            .statusCode(200)
+            .extract()
+            .jsonPath()
+            .getString("expiresAt");
+
+    assertEquals(
+        clock.instant().plus(Duration.ofMinutes(15)), OffsetDateTime.parse(expiresAt).toInstant());
+  }
+
+  @Test
+  void changedPasswordOrRoleRevokesTokens() {
+    userService.seed(List.of(new SeedUser("revoked", "first", "user")), true);
+    String token = createToken("revoked", "first");
+    given().auth().oauth2(token).when().get("/products").then().statusCode(200);
+
+    userService.seed(List.of(new SeedUser("revoked", "second", "user")), true);
+    given().auth().oauth2(token).when().get("/products").then().statusCode(401);
+
+    String renewed = createToken("revoked", "second");
+    userService.seed(List.of(new SeedUser("revoked", "second", "admin")), false);
+    given().auth().oauth2(renewed).when().get("/products").then().statusCode(401);
+  }
+
+  @Test
+  void tamperedTokenIsRejected() {
+    String token = createToken("user", "user");
+    String tampered = token.substring(0, token.length() - 2) + "xx";
+
+    given().auth().oauth2(tampered).when().get("/products").then().statusCode(401);
+  }
+
+  @Test
+  void garbageTokenIsRejected() {
+    given().auth().oauth2("not-a-token").when().get("/products").then().statusCode(401);
+  }
+
+  @Test
+  void tokenCannotBeUsedToObtainAnotherToken() {
+    String token = createToken("admin", "admin");
+
+    given().auth().oauth2(token).when().post("/auth/token").then().statusCode(403);
+  }
+
+  @Test
+  void invalidCredentialsAreRejected() {
+    given().auth().basic("admin", "wrong").when().post("/auth/token").then().statusCode(401);
+  }
+
+  @Test
+  void repeatedLoginAttemptsForOneUsernameAreThrottled() {
+    for (int i = 0; i < 10; i++) {
+      given().auth().basic("intruder", "guess-" + i).when().get("/products").then().statusCode(401);
+    }
+
+    given()
+        .auth()
+        .basic("intruder", "guess-10")
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(429)
+        .header("Retry-After", notNullValue());
+    given().auth().basic("user", "user").when().get("/products").then().statusCode(200);
+  }
+
+  @Test
+  void failuresFromAnotherClientDoNotThrottleACorrectPassword() {
+    for (int i = 0; i <= 10; i++) {
+      loginRateLimiter.recordFailure("admin", "203.0.113.7");
+    }
+    // Make the next login verify the password instead of answering from the cache
+    credentialCache.onUserChanged(new UserChanged("admin"));
+
+    given().auth().basic("admin", "admin").when().get("/products").then().statusCode(200);
+  }
+
+  @Test
+  void seedingOnlyWritesUsersWhoseConfigurationChanged() {
+    assertEquals(1, userService.seed(List.of(new SeedUser("seeded", "first", "user")), true));
+    assertEquals(0, userService.seed(List.of(new SeedUser("seeded", "first", "user")), true));
+    given().auth().basic("seeded", "first").when().get("/products").then().statusCode(200);
+
+    assertEquals(0, userService.seed(List.of(new SeedUser("seeded", "second", "user")), false));
+    assertEquals(1, userService.seed(List.of(new SeedUser("seeded", "second", "user")), true));
+
+    given().auth().basic("seeded", "first").when().get("/products").then().statusCode(401);
+    given().auth().basic("seeded", "second").when().get("/products").then().statusCode(200);
+  }
+}
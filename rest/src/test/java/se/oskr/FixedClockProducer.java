@@ -0,0 +1,23 @@
+package se.oskr;
+
+import io.quarkus.test.Mock;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Replaces the system clock in tests, so expiry classification and dated ETags do not change when a
+ * test run crosses midnight. Tests build their dates with {@code LocalDate.now(clock)}.
+ */
+@ApplicationScoped
+public class FixedClockProducer {
+
+  @Produces
+  @Mock
+  @ApplicationScoped
+  Clock clock() {
+    return Clock.fixed(Instant.parse("2026-06-15T12:00:00Z"), ZoneOffset.UTC);
+  }
+}
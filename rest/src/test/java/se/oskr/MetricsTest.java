@@ -0,0 +1,84 @@
+package se.oskr;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+class MetricsTest {
+
+  @Inject MeterRegistry registry;
+
+  @Test
+  void recordsSqlStatementsPerOperation() {
+    DistributionSummary before = statementSummary("deleteProduct");
+    long countBefore = before != null ? before.count() : 0;
+    double totalBefore = before != null ? before.totalAmount() : 0;
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .delete("/products/{id}", Long.MAX_VALUE)
+        .then()
+        .statusCode(404);
+
+    DistributionSummary after = statementSummary("deleteProduct");
+    assertNotNull(after);
+    assertEquals(countBefore + 1, after.count());
+    assertTrue(after.totalAmount() - totalBefore >= 1);
+  }
+
+  @Test
+  void recordsReactiveStatementsOfNonBlockingOperations() {
+    DistributionSummary before = statementSummary("getLowStock");
+    long countBefore = before != null ? before.count() : 0;
+    double totalBefore = before != null ? before.totalAmount() : 0;
+
+    given().auth().basic("admin", "admin").when().get("/stock/low").then().statusCode(200);
+
+    DistributionSummary after = statementSummary("getLowStock");
+    assertNotNull(after);
+    assertEquals(countBefore + 1, after.count());
+    assertTrue(after.totalAmount() - totalBefore >= 1);
+  }
+
+  @Test
+  void recordsBcryptVerificationTime() {
+    long before = bcryptCount();
+
+    given().auth().basic("user", "wrong").when().get("/products").then().statusCode(401);
+
+    assertEquals(before + 1, bcryptCount());
+  }
+
+  private DistributionSummary statementSummary(String operation) {
+    return registry.find(SqlStatementMetricsFilter.METRIC).tag("operation", operation).summary();
+  }
+
+  private long bcryptCount() {
+    Timer timer = registry.find("auth.bcrypt.verification").timer();
+    return timer != null ? timer.count() : 0;
+  }
+
+  /** The Prometheus registry lives in the app module; tests read meters from an in-memory one. */
+  static class Registry {
+
+    @Produces
+    @Singleton
+    SimpleMeterRegistry simpleMeterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
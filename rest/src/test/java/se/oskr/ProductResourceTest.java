@@ -1,21 +1,40 @@
 package se.oskr;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
+import io.agroal.api.AgroalDataSource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import se.oskr.core.domain.Product;
 
 @QuarkusTest
 class ProductResourceTest {
 
+  @Inject SessionFactory sessionFactory;
+
+  @Inject Clock clock;
+
+  @Inject AgroalDataSource dataSource;
+
   private final List<Long> createdProductIds = new ArrayList<>();
 
   @AfterEach
@@ -49,7 +68,7 @@ class ProductResourceTest {
   }
 
   private long createStockEntry(long productId, double qty, String expiryDate) {
-    String date = expiryDate != null ? expiryDate : LocalDate.now().plusYears(2).toString();
+    String date = expiryDate != null ? expiryDate : LocalDate.now(clock).plusYears(2).toString();
     String body = String.format("{\"quantity\": %s, \"expiryDate\": \"%s\"}", qty, date);
     return given()
         .auth()
@@ -146,6 +165,186 @@ class ProductResourceTest {
         .body("[0].category", is("WATER"));
   }
 
+  @Test
+  void repeatedLookupIsServedFromCacheUntilProductChanges() {
+    long id = createProduct("Water Jug", "WATER", "LITERS", 50);
+    getProductName(id);
+    long hits = productCacheHits();
+
+    getProductName(id);
+    assertEquals(hits + 1, productCacheHits());
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(
+            "{\"name\": \"Water Can\", \"category\": \"WATER\", \"unit\": \"LITERS\","
+                + " \"targetQuantity\": 50}")
+        .when()
+        .put("/products/{id}", id)
+        .then()
+        .statusCode(200);
+    assertEquals("Water Can", getProductName(id));
+  }
+
+  @Test
+  void stockChangeKeepsOtherProductsCached() {
+    long cached = createProduct("Water Jug", "WATER", "LITERS", 50);
+    long changed = createProduct("Rice", "DRY_GOODS", "KG", 20);
+    getProductName(cached);
+    createStockEntry(changed, 5, null);
+    long hits = productCacheHits();
+
+    getProductName(cached);
+    assertEquals(hits + 1, productCacheHits());
+  }
+
+  private long productCacheHits() {
+    return sessionFactory
+        .getStatistics()
+        .getCacheRegionStatistics(Product.class.getName())
+        .getHitCount();
+  }
+
+  @Test
+  void listReflectsProductsCreatedSinceThePreviousList() {
+    createProduct("Water Jug", "WATER", "LITERS", 50);
+    listWaterProducts(1);
+    listWaterProducts(1);
+
+    createProduct("Water Barrel", "WATER", "LITERS", 200);
+    listWaterProducts(2);
+  }
+
+  @Test
+  void productChangedThroughAnotherInstanceIsNotServedFromCache() throws Exception {
+    long id = createProduct("Water Jug", "WATER", "LITERS", 50);
+    getProductName(id);
+    getProductName(id);
+
+    // What another instance's update leaves behind: a new row version and a bumped revision
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate(
+          "UPDATE Product SET name = 'Water Can', version = version + 1 WHERE id = " + id);
+      statement.executeUpdate("UPDATE InventoryRevision SET revision = revision + 1");
+    }
+
+    String name = getProductName(id);
+    for (int i = 0; i < 50 && !name.equals("Water Can"); i++) {
+      Thread.sleep(100);
+      name = getProductName(id);
+    }
+    assertEquals("Water Can", name);
+  }
+
+  private String getProductName(long id) {
+    return given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", id)
+        .then()
+        .statusCode(200)
+        .extract()
+        .jsonPath()
+        .getString("name");
+  }
+
+  private void listWaterProducts(int expected) {
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .queryParam("category", "WATER")
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(expected));
+  }
+
+  @Test
+  void listProductsIncludesCurrentStockPerProduct() {
+    long rice = createProduct("Rice", "DRY_GOODS", "KG", 20);
+    long water = createProduct("Water", "WATER", "LITERS", 50);
+    createProduct("Aspirin", "MEDICINE", "PIECES", 100);
+    createStockEntry(rice, 5, null);
+    createStockEntry(rice, 3, null);
+    createStockEntry(water, 12, null);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(3))
+        .body("find { it.name == 'Rice' }.currentStock", is(8.0f))
+        .body("find { it.name == 'Water' }.currentStock", is(12.0f))
+        .body("find { it.name == 'Aspirin' }.currentStock", is(0.0f));
+  }
+
+  @Test
+  void listProductsPaginatesWithCursor() {
+    long first = createProduct("Water A", "WATER", "LITERS", 10);
+    long second = createProduct("Water B", "WATER", "LITERS", 10);
+    long third = createProduct("Water C", "WATER", "LITERS", 10);
+
+    String link =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .queryParam("limit", 2)
+            .when()
+            .get("/products")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(2))
+            .body("[0].id", is((int) first))
+            .body("[1].id", is((int) second))
+            .header("Link", containsString("rel=\"next\""))
+            .extract()
+            .header("Link");
+    String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get(next)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(1))
+        .body("[0].id", is((int) third))
+        .header("Link", nullValue());
+  }
+
+  @Test
+  void listProductsWithInvalidCursorReturns400() {
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .queryParam("cursor", "!!not-a-cursor")
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(400);
+  }
+
+  @Test
+  void listProductsWithZeroLimitReturns400() {
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .queryParam("limit", 0)
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(400);
+  }
+
   @Test
   void updateProduct() {
     long id = createProduct("Old Name", "WATER", "LITERS", 10);
@@ -191,6 +390,179 @@ class ProductResourceTest {
         .statusCode(404);
   }
 
+  @Test
+  void getProductHonoursIfNoneMatchUntilStockChanges() {
+    long id = createProduct("Matches", "FUEL", "PIECES", 10);
+    String etag =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .when()
+            .get("/products/{id}", id)
+            .then()
+            .statusCode(200)
+            .header("ETag", is("\"0\""))
+            .extract()
+            .header("ETag");
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-None-Match", etag)
+        .when()
+        .get("/products/{id}", id)
+        .then()
+        .statusCode(304)
+        .header("ETag", is(etag));
+
+    createStockEntry(id, 4, null);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-None-Match", etag)
+        .when()
+        .get("/products/{id}", id)
+        .then()
+        .statusCode(200)
+        .header("ETag", is("\"1\""))
+        .body("currentStock", is(4.0f))
+        .body("version", is(1));
+  }
+
+  @Test
+  void listProductsAnswers304UntilInventoryChanges() {
+    createProduct("Tarp", "OTHER", "PIECES", 2);
+    var first =
+        given().auth().basic("admin", "admin").when().get("/products").then().statusCode(200);
+    String etag = first.extract().header("ETag");
+    String lastModified = first.extract().header("Last-Modified");
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-None-Match", etag)
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(304)
+        .header("ETag", is(etag));
+
+    // The date can't tell a change later within the same second apart, so only a later one matches
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-Modified-Since", lastModified)
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(200);
+
+    ZonedDateTime nextSecond =
+        ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME).plusSeconds(1);
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-Modified-Since", DateTimeFormatter.RFC_1123_DATE_TIME.format(nextSecond))
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(304);
+
+    createProduct("Rope", "OTHER", "PIECES", 1);
+
+    String changed =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .header("If-None-Match", etag)
+            .when()
+            .get("/products")
+            .then()
+            .statusCode(200)
+            .body("name", hasItem("Rope"))
+            .extract()
+            .header("ETag");
+    assertNotEquals(etag, changed);
+  }
+
+  @Test
+  void conditionalPollStillRequiresAuthentication() {
+    String etag =
+        given()
+            .auth()
+            .basic("user", "user")
+            .when()
+            .get("/products")
+            .then()
+            .statusCode(200)
+            .extract()
+            .header("ETag");
+
+    given().header("If-None-Match", etag).when().get("/products").then().statusCode(401);
+
+    given()
+        .auth()
+        .preemptive()
+        .basic("user", "wrong")
+        .header("If-None-Match", etag)
+        .when()
+        .get("/products")
+        .then()
+        .statusCode(401);
+  }
+
+  @Test
+  void updateAndDeleteProductRequireMatchingVersion() {
+    long id = createProduct("Flour", "STAPLES", "KG", 10);
+    String body =
+        """
+        {"name": "Wheat flour", "category": "STAPLES", "unit": "KG", "targetQuantity": 12}
+        """;
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .header("If-Match", "\"0\"")
+        .body(body)
+        .when()
+        .put("/products/{id}", id)
+        .then()
+        .statusCode(200)
+        .header("ETag", is("\"1\""))
+        .body("version", is(1));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .header("If-Match", "\"0\"")
+        .body(body)
+        .when()
+        .put("/products/{id}", id)
+        .then()
+        .statusCode(412);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-Match", "\"0\"")
+        .when()
+        .delete("/products/{id}", id)
+        .then()
+        .statusCode(412);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-Match", "\"1\"")
+        .when()
+        .delete("/products/{id}", id)
+        .then()
+        .statusCode(204);
+  }
+
   @Test
   void deleteNonExistentProduct() {
     given().auth().basic("admin", "admin").when().delete("/products/99999").then().statusCode(404);
@@ -212,6 +584,78 @@ class ProductResourceTest {
         .body("$", hasSize(2));
   }
 
+  @Test
+  void listProductStockPaginatesInExpiryOrder() {
+    long productId = createProduct("Fuel Can", "FUEL", "LITERS", 50);
+    String earlyDate = LocalDate.now(clock).plusDays(5).toString();
+    String lateDate = LocalDate.now(clock).plusDays(60).toString();
+    createStockEntry(productId, 1, lateDate);
+    createStockEntry(productId, 2, earlyDate);
+    createStockEntry(productId, 3, earlyDate);
+
+    String link =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .queryParam("limit", 2)
+            .when()
+            .get("/products/{id}/stock", productId)
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(2))
+            .body("[0].quantity", is(2.0f))
+            .body("[1].quantity", is(3.0f))
+            .extract()
+            .header("Link");
+    String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get(next)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(1))
+        .body("[0].expiryDate", is(lateDate))
+        .header("Link", nullValue());
+  }
+
+  @Test
+  void listProductStockFiltersByExpiryStatus() {
+    long productId = createProduct("Bandages", "MEDICINE", "PIECES", 10);
+    String expired = LocalDate.now(clock).minusDays(3).toString();
+    String approaching = LocalDate.now(clock).plusDays(10).toString();
+    createStockEntry(productId, 1, expired);
+    createStockEntry(productId, 2, approaching);
+    createStockEntry(productId, 3, LocalDate.now(clock).plusDays(200).toString());
+    createStockEntry(productId, 4, null);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .queryParam("status", "EXPIRED")
+        .when()
+        .get("/products/{id}/stock", productId)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(1))
+        .body("[0].expiryDate", is(expired))
+        .body("[0].expiryStatus", is("EXPIRED"));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .queryParam("status", "APPROACHING")
+        .when()
+        .get("/products/{id}/stock", productId)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(1))
+        .body("[0].expiryDate", is(approaching))
+        .body("[0].expiryStatus", is("APPROACHING"));
+  }
+
   @Test
   void listProductStockNonExistentProduct() {
     given()
@@ -226,8 +670,8 @@ class ProductResourceTest {
   @Test
   void createStockEntryAllFields() {
     long productId = createProduct("Beans", "PRESERVED_FOOD", "CANS", 24);
-    String purchasedDate = LocalDate.now().minusMonths(1).toString();
-    String expiryDate = LocalDate.now().plusYears(2).toString();
+    String purchasedDate = LocalDate.now(clock).minusMonths(1).toString();
+    String expiryDate = LocalDate.now(clock).plusYears(2).toString();
 
     given()
         .auth()
@@ -286,7 +730,7 @@ class ProductResourceTest {
         .contentType(ContentType.JSON)
         .body(
             String.format(
-                "{\"quantity\": 5, \"expiryDate\": \"%s\"}", LocalDate.now().plusYears(1)))
+                "{\"quantity\": 5, \"expiryDate\": \"%s\"}", LocalDate.now(clock).plusYears(1)))
         .when()
         .post("/products/99999/stock")
         .then()
@@ -296,9 +740,9 @@ class ProductResourceTest {
   @Test
   void stockOrderedByExpiryDate() {
     long productId = createProduct("Fuel Can", "FUEL", "LITERS", 50);
-    String earlyDate = LocalDate.now().plusDays(5).toString();
-    String midDate = LocalDate.now().plusDays(30).toString();
-    String lateDate = LocalDate.now().plusDays(60).toString();
+    String earlyDate = LocalDate.now(clock).plusDays(5).toString();
+    String midDate = LocalDate.now(clock).plusDays(30).toString();
+    String lateDate = LocalDate.now(clock).plusDays(60).toString();
     createStockEntry(productId, 10, lateDate);
     createStockEntry(productId, 10, midDate);
     createStockEntry(productId, 10, earlyDate);
@@ -342,6 +786,13 @@ class ProductResourceTest {
     given().when().get("/products").then().statusCode(401);
   }
 
+  @Test
+  void wrongPasswordIsRejectedAfterSuccessfulLogin() {
+    given().auth().basic("user", "user").when().get("/products").then().statusCode(200);
+    given().auth().basic("user", "wrong").when().get("/products").then().statusCode(401);
+    given().auth().basic("user", "user").when().get("/products").then().statusCode(200);
+  }
+
   @Test
   void createProductWithInvalidCategoryReturns400() {
     given()
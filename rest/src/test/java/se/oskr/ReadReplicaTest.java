@@ -0,0 +1,178 @@
+package se.oskr;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.arc.InjectableInstance;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import jakarta.inject.Inject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Reads routed to a replica datasource, which here points at the primary database. */
+@QuarkusTest
+@TestProfile(ReadReplicaTest.WithReplica.class)
+class ReadReplicaTest {
+
+  public static class WithReplica implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+      return Map.of(
+          "quarkus.datasource.\"replica\".db-kind", "postgresql",
+          "quarkus.datasource.\"replica\".jdbc.url", "${quarkus.datasource.jdbc.url}",
+          "quarkus.datasource.\"replica\".reactive.url", "${quarkus.datasource.reactive.url}",
+          "quarkus.datasource.\"replica\".username", "${quarkus.datasource.username}",
+          "quarkus.datasource.\"replica\".password", "${quarkus.datasource.password}",
+          "quarkus.datasource.\"replica\".jdbc.transactions", "disabled",
+          "quarkus.datasource.\"replica\".devservices.enabled", "false");
+    }
+  }
+
+  @Inject
+  @DataSource("replica")
+  InjectableInstance<AgroalDataSource> replica;
+
+  @Inject Clock clock;
+
+  private Long productId;
+
+  @AfterEach
+  void cleanup() {
+    if (productId != null) {
+      given().auth().basic("admin", "admin").delete("/products/{id}", productId);
+    }
+  }
+
+  private long createProduct() {
+    return given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(
+            """
+            {"name": "Water", "category": "WATER", "unit": "LITERS", "targetQuantity": 10}
+            """)
+        .when()
+        .post("/products")
+        .then()
+        .statusCode(200)
+        .extract()
+        .jsonPath()
+        .getLong("id");
+  }
+
+  @Test
+  void readsAreServedFromReplica() {
+    assertEquals(1, replica.listActive().size());
+
+    productId = createProduct();
+    String expiry = LocalDate.now(clock).minusDays(1).toString();
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(String.format("{\"quantity\": 2, \"expiryDate\": \"%s\"}", expiry))
+        .when()
+        .post("/products/{id}/stock", productId)
+        .then()
+        .statusCode(200);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", productId)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(2.0f));
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}/stock", productId)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(1))
+        .body("[0].expiryStatus", is("EXPIRED"));
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .accept("application/x-ndjson")
+        .when()
+        .get("/stock")
+        .then()
+        .statusCode(200)
+        .body(containsString("\"productId\":" + productId));
+  }
+
+  @Test
+  void exportStreamsFromReplicaInBatches() throws SQLException {
+    productId = createProduct();
+    String expiry = LocalDate.now(clock).plusYears(1).toString();
+    String batch =
+        IntStream.range(0, 600)
+            .mapToObj(
+                i ->
+                    String.format(
+                        "{\"productId\": %d, \"quantity\": 1, \"expiryDate\": \"%s\"}",
+                        productId, expiry))
+            .collect(Collectors.joining(",", "[", "]"));
+    for (int i = 0; i < 2; i++) {
+      given()
+          .auth()
+          .basic("admin", "admin")
+          .contentType(ContentType.JSON)
+          .body(batch)
+          .when()
+          .post("/stock/batch")
+          .then()
+          .statusCode(200);
+    }
+
+    String body =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .accept("application/x-ndjson")
+            .when()
+            .get("/stock")
+            .then()
+            .statusCode(200)
+            .extract()
+            .asString();
+
+    // More entries than the export fetch size, so the cursor is read in several batches
+    List<Long> ids =
+        body.lines()
+            .map(JsonPath::new)
+            .filter(line -> line.getLong("productId") == productId)
+            .map(line -> line.getLong("id"))
+            .toList();
+    assertEquals(1200, ids.size());
+    assertEquals(ids.stream().sorted().toList(), ids);
+    try (Connection connection = replica.get().getConnection()) {
+      assertTrue(connection.getAutoCommit());
+      assertFalse(connection.isReadOnly());
+    }
+  }
+}
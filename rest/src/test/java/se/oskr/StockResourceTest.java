@@ -1,21 +1,40 @@
 package se.oskr;
 
 import static io.restassured.RestAssured.given;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import io.agroal.api.AgroalDataSource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import jakarta.inject.Inject;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 @QuarkusTest
 class StockResourceTest {
 
+  @Inject Clock clock;
+
+  @Inject AgroalDataSource dataSource;
+
   private final List<Long> createdProductIds = new ArrayList<>();
 
   @AfterEach
@@ -49,7 +68,7 @@ class StockResourceTest {
   }
 
   private long createStockEntry(long productId, double qty, String expiryDate) {
-    String date = expiryDate != null ? expiryDate : LocalDate.now().plusYears(2).toString();
+    String date = expiryDate != null ? expiryDate : LocalDate.now(clock).plusYears(2).toString();
     String body = String.format("{\"quantity\": %s, \"expiryDate\": \"%s\"}", qty, date);
     return given()
         .auth()
@@ -80,7 +99,7 @@ class StockResourceTest {
   @Test
   void getExpiredStockReturnsExpiredEntries() {
     long productId = createProduct("Water", "WATER", "LITERS", 10);
-    String yesterday = LocalDate.now().minusDays(1).toString();
+    String yesterday = LocalDate.now(clock).minusDays(1).toString();
     createStockEntry(productId, 5, yesterday);
 
     given()
@@ -98,8 +117,8 @@ class StockResourceTest {
   @Test
   void getExpiredStockExcludesNonExpired() {
     long productId = createProduct("Preserved Food", "PRESERVED_FOOD", "CANS", 12);
-    String yesterday = LocalDate.now().minusDays(1).toString();
-    String nextYear = LocalDate.now().plusYears(1).toString();
+    String yesterday = LocalDate.now(clock).minusDays(1).toString();
+    String nextYear = LocalDate.now(clock).plusYears(1).toString();
     createStockEntry(productId, 3, yesterday);
     createStockEntry(productId, 3, nextYear);
 
@@ -114,11 +133,115 @@ class StockResourceTest {
         .body("[0].expiryDate", is(yesterday));
   }
 
+  @Test
+  void stockListingTagsDependOnTheDate() {
+    String etag =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .when()
+            .get("/stock/expired")
+            .then()
+            .statusCode(200)
+            .header("ETag", containsString("-" + LocalDate.now(clock) + "\""))
+            .extract()
+            .header("ETag");
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-None-Match", etag)
+        .when()
+        .get("/stock/expired")
+        .then()
+        .statusCode(304);
+
+    long productId = createProduct("Tea", "DRY_GOODS", "GRAMS", 500);
+    createStockEntry(productId, 100, LocalDate.now(clock).minusDays(1).toString());
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-None-Match", etag)
+        .when()
+        .get("/stock/expired")
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(1));
+  }
+
+  @Test
+  void getExpiredStockPaginatesWithCursor() {
+    long productId = createProduct("Water", "WATER", "LITERS", 10);
+    String lastWeek = LocalDate.now(clock).minusDays(7).toString();
+    String yesterday = LocalDate.now(clock).minusDays(1).toString();
+    createStockEntry(productId, 1, yesterday);
+    createStockEntry(productId, 2, lastWeek);
+    createStockEntry(productId, 3, lastWeek);
+
+    String link =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .queryParam("limit", 2)
+            .when()
+            .get("/stock/expired")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(2))
+            .body("[0].quantity", is(2.0f))
+            .body("[1].quantity", is(3.0f))
+            .extract()
+            .header("Link");
+    String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get(next)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(1))
+        .body("[0].expiryDate", is(yesterday))
+        .header("Link", nullValue());
+  }
+
+  @Test
+  void exportStreamsEveryEntryAsNdjson() {
+    long water = createProduct("Water", "WATER", "LITERS", 10);
+    long rice = createProduct("Rice", "DRY_GOODS", "KG", 10);
+    long first = createStockEntry(water, 1, null);
+    long second = createStockEntry(rice, 2, LocalDate.now(clock).minusDays(1).toString());
+
+    String body =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .accept("application/x-ndjson")
+            .when()
+            .get("/stock")
+            .then()
+            .statusCode(200)
+            .contentType(containsString("application/x-ndjson"))
+            .extract()
+            .asString();
+
+    List<String> lines = body.lines().toList();
+    assertEquals(2, lines.size());
+    JsonPath firstLine = new JsonPath(lines.get(0));
+    assertEquals(first, firstLine.getLong("id"));
+    assertEquals(water, firstLine.getLong("productId"));
+    JsonPath secondLine = new JsonPath(lines.get(1));
+    assertEquals(second, secondLine.getLong("id"));
+    assertEquals("EXPIRED", secondLine.getString("expiryStatus"));
+  }
+
   @Test
   void getExpiringStockDefault() {
     long productId = createProduct("Medicine", "MEDICINE", "PIECES", 50);
-    String in15Days = LocalDate.now().plusDays(15).toString();
-    String in60Days = LocalDate.now().plusDays(60).toString();
+    String in15Days = LocalDate.now(clock).plusDays(15).toString();
+    String in60Days = LocalDate.now(clock).plusDays(60).toString();
     createStockEntry(productId, 10, in15Days);
     createStockEntry(productId, 10, in60Days);
 
@@ -136,8 +259,8 @@ class StockResourceTest {
   @Test
   void getExpiringStockCustomDays() {
     long productId = createProduct("Dry Goods", "DRY_GOODS", "KG", 20);
-    String in5Days = LocalDate.now().plusDays(5).toString();
-    String in10Days = LocalDate.now().plusDays(10).toString();
+    String in5Days = LocalDate.now(clock).plusDays(5).toString();
+    String in10Days = LocalDate.now(clock).plusDays(10).toString();
     createStockEntry(productId, 5, in5Days);
     createStockEntry(productId, 5, in10Days);
 
@@ -156,7 +279,7 @@ class StockResourceTest {
   @Test
   void getExpiringStockExcludesAlreadyExpired() {
     long productId = createProduct("Fuel", "FUEL", "LITERS", 30);
-    String yesterday = LocalDate.now().minusDays(1).toString();
+    String yesterday = LocalDate.now(clock).minusDays(1).toString();
     createStockEntry(productId, 10, yesterday);
 
     given()
@@ -274,6 +397,577 @@ class StockResourceTest {
         .body("quantity", is(8.0f));
   }
 
+  @Test
+  void currentStockFollowsStockEntryChanges() {
+    long productId = createProduct("Lentils", "DRY_GOODS", "KG", 40);
+    long first = createStockEntry(productId, 5, null);
+    long second = createStockEntry(productId, 10, null);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(
+            """
+            {"quantity": 2}
+            """)
+        .when()
+        .patch("/stock/{id}", first)
+        .then()
+        .statusCode(200);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(
+            String.format(
+                "{\"quantity\": 7, \"expiryDate\": \"%s\"}", LocalDate.now(clock).plusYears(1)))
+        .when()
+        .put("/stock/{id}", second)
+        .then()
+        .statusCode(200);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", productId)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(9.0f));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .delete("/stock/{id}", first)
+        .then()
+        .statusCode(204);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", productId)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(7.0f));
+  }
+
+  @Test
+  void createStockEntriesReportsEachItem() {
+    long water = createProduct("Bottled water", "WATER", "LITERS", 50);
+    long rice = createProduct("Rice", "DRY_GOODS", "KG", 20);
+    String expiry = LocalDate.now(clock).plusYears(1).toString();
+
+    JsonPath results =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .contentType(ContentType.JSON)
+            .body(
+                String.format(
+                    """
+                    [
+                      {"productId": %d, "quantity": 6, "expiryDate": "%s", "location": "Shelf A"},
+                      {"productId": %d, "quantity": 4, "expiryDate": "%s"},
+                      {"productId": 99999, "quantity": 1, "expiryDate": "%s"},
+                      {"productId": %d, "quantity": 3},
+                      {"productId": %d, "quantity": 2.5, "expiryDate": "%s"}
+                    ]
+                    """,
+                    water, expiry, rice, expiry, expiry, rice, water, expiry))
+            .when()
+            .post("/stock/batch")
+            .then()
+            .statusCode(200)
+            .body(
+                "status",
+                is(List.of("CREATED", "CREATED", "PRODUCT_NOT_FOUND", "INVALID", "CREATED")))
+            .extract()
+            .jsonPath();
+
+    assertEquals(water, results.getLong("[0].entry.productId"));
+    assertEquals("Shelf A", results.getString("[0].entry.location"));
+    assertEquals(rice, results.getLong("[1].entry.productId"));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}/stock", water)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(2));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", water)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(8.5f));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", rice)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(4.0f));
+  }
+
+  @Test
+  void createStockEntriesRejectsOversizedBatch() {
+    String item = "{\"productId\": 1, \"quantity\": 1, \"expiryDate\": \"2030-01-01\"}";
+    String body = "[" + String.join(",", Collections.nCopies(1001, item)) + "]";
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(body)
+        .when()
+        .post("/stock/batch")
+        .then()
+        .statusCode(400);
+  }
+
+  @Test
+  void userCannotCreateStockEntries() {
+    given()
+        .auth()
+        .basic("user", "user")
+        .contentType(ContentType.JSON)
+        .body("[]")
+        .when()
+        .post("/stock/batch")
+        .then()
+        .statusCode(403);
+  }
+
+  @Test
+  void adjustStockEntriesReportsEachAdjustment() {
+    long productId = createProduct("Oats", "DRY_GOODS", "KG", 30);
+    long first = createStockEntry(productId, 5, null);
+    long second = createStockEntry(productId, 10, null);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(
+            String.format(
+                """
+                [
+                  {"id": %d, "delta": -2},
+                  {"id": %d, "delta": 3},
+                  {"id": %d, "delta": -4},
+                  {"id": 99999, "delta": -1},
+                  {"delta": 1}
+                ]
+                """,
+                first, second, first))
+        .when()
+        .patch("/stock")
+        .then()
+        .statusCode(200)
+        .body(
+            "status",
+            is(List.of("APPLIED", "APPLIED", "INSUFFICIENT_QUANTITY", "NOT_FOUND", "INVALID")))
+        .body("[0].entry.quantity", is(3.0f))
+        .body("[1].entry.quantity", is(13.0f))
+        .body("[2].entry", nullValue());
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", productId)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(16.0f));
+  }
+
+  @Test
+  void adjustingAnEntryDeletedConcurrentlyReportsNotFound() throws Exception {
+    long productId = createProduct("Matches", "OTHER", "PIECES", 10);
+    long entryId = createStockEntry(productId, 5, null);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Connection deleting = dataSource.getConnection();
+        Connection watching = dataSource.getConnection()) {
+      deleting.setAutoCommit(false);
+      try (Statement statement = deleting.createStatement()) {
+        statement.execute("SELECT id FROM StockEntry WHERE id = " + entryId + " FOR UPDATE");
+        Future<String> status =
+            executor.submit(
+                () ->
+                    given()
+                        .auth()
+                        .preemptive()
+                        .basic("admin", "admin")
+                        .contentType(ContentType.JSON)
+                        .body(String.format("[{\"id\": %d, \"delta\": -1}]", entryId))
+                        .patch("/stock")
+                        .then()
+                        .statusCode(200)
+                        .extract()
+                        .jsonPath()
+                        .getString("[0].status"));
+        // Delete only once the adjustment has read the entry and waits for its row lock
+        awaitLockWait(watching);
+        statement.executeUpdate("DELETE FROM StockEntry WHERE id = " + entryId);
+        deleting.commit();
+        assertEquals("NOT_FOUND", status.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void awaitLockWait(Connection connection) throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      for (int i = 0; i < 100; i++) {
+        try (ResultSet waiting =
+            statement.executeQuery("SELECT count(*) FROM pg_locks WHERE NOT granted")) {
+          waiting.next();
+          if (waiting.getInt(1) > 0) {
+            return;
+          }
+        }
+        Thread.sleep(50);
+      }
+    }
+    throw new AssertionError("The adjustment never waited for the row lock");
+  }
+
+  @Test
+  void stockChangeCommitsWithoutWaitingForTheRevisionRow() throws Exception {
+    long productId = createProduct("Batteries", "OTHER", "PIECES", 12);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Connection locking = dataSource.getConnection();
+        Connection watching = dataSource.getConnection()) {
+      locking.setAutoCommit(false);
+      try (Statement statement = locking.createStatement()) {
+        statement.execute("SELECT id FROM InventoryRevision FOR UPDATE");
+        Future<Long> entryId = executor.submit(() -> createStockEntry(productId, 5, null));
+        // The revision is bumped after the entry commits, so only the bump waits for the lock
+        awaitLockWait(watching);
+        try (Statement reading = watching.createStatement();
+            ResultSet stock =
+                reading.executeQuery("SELECT currentStock FROM Product WHERE id = " + productId)) {
+          stock.next();
+          assertEquals(5.0, stock.getDouble(1));
+        }
+        locking.commit();
+        entryId.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void failedRevisionIncrementIsRetried() throws Exception {
+    long productId = createProduct("Flares", "OTHER", "PIECES", 6);
+    String etag =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .when()
+            .get("/products")
+            .then()
+            .statusCode(200)
+            .extract()
+            .header("ETag");
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Connection locking = dataSource.getConnection();
+        Connection watching = dataSource.getConnection()) {
+      locking.setAutoCommit(false);
+      try (Statement statement = locking.createStatement()) {
+        statement.execute("SELECT id FROM InventoryRevision FOR UPDATE");
+        Future<Long> entryId = executor.submit(() -> createStockEntry(productId, 3, null));
+        // Fail the increment after the entry has committed by cancelling its wait for the row
+        awaitLockWait(watching);
+        try (Statement cancelling = watching.createStatement()) {
+          cancelling.execute("SELECT pg_cancel_backend(pid) FROM pg_locks WHERE NOT granted");
+        }
+        entryId.get();
+        locking.commit();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    int status = 304;
+    for (int i = 0; i < 50 && status == 304; i++) {
+      Thread.sleep(100);
+      status =
+          given()
+              .auth()
+              .basic("admin", "admin")
+              .header("If-None-Match", etag)
+              .when()
+              .get("/products")
+              .then()
+              .extract()
+              .statusCode();
+    }
+    assertEquals(200, status);
+  }
+
+  @Test
+  void concurrentAdjustmentsAreAllApplied() throws Exception {
+    long productId = createProduct("Candles", "OTHER", "PIECES", 20);
+    long entryId = createStockEntry(productId, 20, null);
+    String consumeOne = String.format("[{\"id\": %d, \"delta\": -1}]", entryId);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> responses = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+        responses.add(
+            executor.submit(
+                () ->
+                    given()
+                            .auth()
+                            .preemptive()
+                            .basic("admin", "admin")
+                            .contentType(ContentType.JSON)
+                            .body(consumeOne)
+                            .patch("/stock")
+                            .then()
+                            .statusCode(200)
+                            .extract()
+                            .jsonPath()
+                            .getString("[0].status")
+                            .equals("APPLIED")
+                        ? 1
+                        : 0));
+      }
+      int applied = 0;
+      for (Future<Integer> response : responses) {
+        applied += response.get();
+      }
+      assertEquals(20, applied);
+    } finally {
+      executor.shutdown();
+    }
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", productId)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(0.0f));
+  }
+
+  @Test
+  void concurrentBulkAndSingleEditsOfOneProductDoNotDeadlock() throws Exception {
+    long productId = createProduct("Lamp Oil", "FUEL", "LITERS", 200);
+    long first = createStockEntry(productId, 100, null);
+    long second = createStockEntry(productId, 100, null);
+    String consumeBoth =
+        String.format("[{\"id\": %d, \"delta\": -1}, {\"id\": %d, \"delta\": -1}]", first, second);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> responses = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        boolean bulk = i % 2 == 0;
+        int quantity = 50 + i;
+        responses.add(
+            executor.submit(
+                () ->
+                    bulk
+                        ? given()
+                            .auth()
+                            .preemptive()
+                            .basic("admin", "admin")
+                            .contentType(ContentType.JSON)
+                            .body(consumeBoth)
+                            .patch("/stock")
+                            .statusCode()
+                        : given()
+                            .auth()
+                            .preemptive()
+                            .basic("admin", "admin")
+                            .contentType(ContentType.JSON)
+                            .body(String.format("{\"quantity\": %d}", quantity))
+                            .patch("/stock/{id}", second)
+                            .statusCode()));
+      }
+      // None of the edits sends If-Match, so each one applies to whatever version is current
+      for (Future<Integer> response : responses) {
+        assertEquals(200, response.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    JsonPath stock =
+        given()
+            .auth()
+            .basic("admin", "admin")
+            .when()
+            .get("/products/{id}/stock", productId)
+            .then()
+            .statusCode(200)
+            .extract()
+            .jsonPath();
+    double total = stock.getList("quantity", Float.class).stream().mapToDouble(q -> q).sum();
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", productId)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is((float) total));
+  }
+
+  @Test
+  void concurrentBatchIngestsAndAdjustmentsOfTwoProductsDoNotDeadlock() throws Exception {
+    long fuel = createProduct("Kerosene", "FUEL", "LITERS", 200);
+    long water = createProduct("Spring water", "WATER", "LITERS", 200);
+    long fuelEntry = createStockEntry(fuel, 100, null);
+    long waterEntry = createStockEntry(water, 100, null);
+    String expiry = LocalDate.now(clock).plusYears(1).toString();
+    String item = "{\"productId\": %d, \"quantity\": 1, \"expiryDate\": \"" + expiry + "\"}";
+    String fuelFirst = "[" + item.formatted(fuel) + ", " + item.formatted(water) + "]";
+    String waterFirst = "[" + item.formatted(water) + ", " + item.formatted(fuel) + "]";
+    String consumeBoth =
+        String.format(
+            "[{\"id\": %d, \"delta\": -1}, {\"id\": %d, \"delta\": -1}]",
+            waterEntry, fuelEntry);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> responses = new ArrayList<>();
+      for (int i = 0; i < 45; i++) {
+        String body = List.of(fuelFirst, waterFirst, consumeBoth).get(i % 3);
+        boolean adjust = i % 3 == 2;
+        responses.add(
+            executor.submit(
+                () ->
+                    adjust
+                        ? given()
+                            .auth()
+                            .preemptive()
+                            .basic("admin", "admin")
+                            .contentType(ContentType.JSON)
+                            .body(body)
+                            .patch("/stock")
+                            .statusCode()
+                        : given()
+                            .auth()
+                            .preemptive()
+                            .basic("admin", "admin")
+                            .contentType(ContentType.JSON)
+                            .body(body)
+                            .post("/stock/batch")
+                            .statusCode()));
+      }
+      for (Future<Integer> response : responses) {
+        assertEquals(200, response.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    // 30 ingests add one unit to each product and 15 adjustments take one away
+    for (long productId : List.of(fuel, water)) {
+      given()
+          .auth()
+          .basic("admin", "admin")
+          .when()
+          .get("/products/{id}", productId)
+          .then()
+          .statusCode(200)
+          .body("currentStock", is(115.0f));
+    }
+  }
+
+  @Test
+  void stockEntryChangesRequireMatchingVersion() {
+    long productId = createProduct("Soup", "PRESERVED_FOOD", "CANS", 12);
+    long entryId = createStockEntry(productId, 6, null);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .header("If-Match", "\"0\"")
+        .body(
+            """
+            {"quantity": 5}
+            """)
+        .when()
+        .patch("/stock/{id}", entryId)
+        .then()
+        .statusCode(200)
+        .header("ETag", is("\"1\""));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .body(String.format("[{\"id\": %d, \"delta\": -1}]", entryId))
+        .when()
+        .patch("/stock")
+        .then()
+        .statusCode(200)
+        .body("[0].entry.version", is(2));
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .contentType(ContentType.JSON)
+        .header("If-Match", "\"1\"")
+        .body(
+            String.format(
+                "{\"quantity\": 3, \"expiryDate\": \"%s\"}", LocalDate.now(clock).plusYears(1)))
+        .when()
+        .put("/stock/{id}", entryId)
+        .then()
+        .statusCode(412);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-Match", "W/\"2\"")
+        .when()
+        .delete("/stock/{id}", entryId)
+        .then()
+        .statusCode(412);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .header("If-Match", "\"2\"")
+        .when()
+        .delete("/stock/{id}", entryId)
+        .then()
+        .statusCode(204);
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}", productId)
+        .then()
+        .statusCode(200)
+        .body("currentStock", is(0.0f));
+  }
+
   @Test
   void updateNonExistentStockEntry() {
     given()
@@ -323,6 +1017,22 @@ class StockResourceTest {
     given().auth().basic("user", "user").when().get("/stock/expired").then().statusCode(200);
   }
 
+  @Test
+  void listByExpiryWithCursorWithoutExpiryDateReturns400() {
+    // Only listings that include entries without an expiry date issue such cursors
+    String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(":1".getBytes(UTF_8));
+    for (String path : List.of("/stock/expired", "/stock/expiring")) {
+      given()
+          .auth()
+          .basic("admin", "admin")
+          .queryParam("cursor", cursor)
+          .when()
+          .get(path)
+          .then()
+          .statusCode(400);
+    }
+  }
+
   @Test
   void userCannotPatchStock() {
     long productId = createProduct("Water", "WATER", "LITERS", 10);
@@ -359,7 +1069,7 @@ class StockResourceTest {
   @Test
   void expiryStatusNullForFarFuture() {
     long productId = createProduct("Freeze Dried", "FREEZE_DRIED", "PIECES", 10);
-    String in60Days = LocalDate.now().plusDays(60).toString();
+    String in60Days = LocalDate.now(clock).plusDays(60).toString();
     createStockEntry(productId, 5, in60Days);
 
     given()
@@ -373,4 +1083,27 @@ class StockResourceTest {
         .body("$", hasSize(1))
         .body("[0].expiryStatus", nullValue());
   }
+
+  @Test
+  void expiryStatusBoundaries() {
+    long productId = createProduct("Canned Beans", "PRESERVED_FOOD", "CANS", 10);
+    LocalDate today = LocalDate.now(clock);
+    createStockEntry(productId, 1, today.minusDays(1).toString());
+    createStockEntry(productId, 1, today.toString());
+    createStockEntry(productId, 1, today.plusDays(30).toString());
+    createStockEntry(productId, 1, today.plusDays(31).toString());
+
+    given()
+        .auth()
+        .basic("admin", "admin")
+        .when()
+        .get("/products/{id}/stock", productId)
+        .then()
+        .statusCode(200)
+        .body("$", hasSize(4))
+        .body("[0].expiryStatus", is("EXPIRED"))
+        .body("[1].expiryStatus", is("APPROACHING"))
+        .body("[2].expiryStatus", is("APPROACHING"))
+        .body("[3].expiryStatus", nullValue());
+  }
 }